@@ -0,0 +1,29 @@
+plugins {
+    `base-lib`
+}
+
+val jmhVersion = "1.37"
+
+dependencies {
+    implementation(project(":sqlg3-runtime"))
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+
+    runtimeOnly("com.h2database:h2:2.3.232")
+}
+
+tasks.register("jmh", JavaExec::class) {
+    group = "benchmark"
+    description = "Runs JMH benchmarks with allocation profiling (use -PjmhArgs=... to pass JMH options)"
+    mainClass.set("org.openjdk.jmh.Main")
+    classpath = sourceSets["main"].runtimeClasspath
+    val resultFile = layout.buildDirectory.file("jmh/results.json").get().asFile
+    doFirst {
+        resultFile.parentFile.mkdirs()
+    }
+    args("-prof", "gc", "-rf", "json", "-rff", resultFile.path)
+    val jmhArgs = project.findProperty("jmhArgs") as String?
+    if (jmhArgs != null) {
+        args(jmhArgs.split(" ").filter { it.isNotBlank() })
+    }
+}
@@ -0,0 +1,79 @@
+package sqlg3.runtime;
+
+import org.openjdk.jmh.annotations.*;
+import sqlg3.runtime.specific.Generic;
+
+import java.sql.*;
+
+/**
+ * Embedded H2 database with the ORDERS table shared by benchmarks.
+ */
+@State(Scope.Thread)
+public class BenchDatabase {
+
+    static final String SELECT_ORDERS = "SELECT id, customer_id, status, amount, created, note FROM orders WHERE id <= ?";
+    static final String UPDATE_ORDER = "UPDATE orders SET status = ?, amount = ? WHERE id = ?";
+
+    /**
+     * Number of rows in ORDERS table
+     */
+    @Param("1000")
+    public int rows;
+
+    /**
+     * Use {@link StatementCache} for GBase calls
+     */
+    @Param({"false", "true"})
+    public boolean cacheStatements;
+
+    Connection connection;
+    StatementCache statements;
+    GlobalContext global;
+    GBase base;
+
+    private static int counter = 0;
+
+    private static synchronized String nextUrl() {
+        return "jdbc:h2:mem:bench" + (counter++);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(nextUrl());
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(
+                "CREATE TABLE orders (" +
+                "id BIGINT PRIMARY KEY, customer_id INT NOT NULL, status VARCHAR(20) NOT NULL, " +
+                "amount DOUBLE, created TIMESTAMP, note VARCHAR(200))"
+            );
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO orders VALUES (?, ?, ?, ?, ?, ?)")) {
+            long now = System.currentTimeMillis();
+            for (int i = 1; i <= rows; i++) {
+                stmt.setLong(1, i);
+                stmt.setInt(2, i % 97);
+                stmt.setString(3, i % 3 == 0 ? "SHIPPED" : "NEW");
+                stmt.setDouble(4, i * 1.5);
+                stmt.setTimestamp(5, new Timestamp(now - i * 60_000L));
+                stmt.setString(6, i % 5 == 0 ? null : "Order note #" + i);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        global = new GlobalContext(new Generic(), new RuntimeMapperImpl(), SqlTrace.createDefault(System.err::println));
+        if (cacheStatements) {
+            statements = new StatementCache(connection, 100);
+            base = new GBase(new GContext(global, null, statements));
+        } else {
+            base = new GBase(new GContext(global, null, connection));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (statements != null) {
+            statements.close();
+        }
+        connection.close();
+    }
+}
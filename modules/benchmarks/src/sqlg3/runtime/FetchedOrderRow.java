@@ -0,0 +1,37 @@
+package sqlg3.runtime;
+
+import java.sql.Timestamp;
+
+/**
+ * Row type as generated by preprocessor with static fetch method.
+ */
+public final class FetchedOrderRow {
+
+    public final long id;
+    public final int customerId;
+    public final String status;
+    public final Double amount;
+    public final Timestamp created;
+    public final String note;
+
+    public FetchedOrderRow(long id, int customerId, String status, Double amount, Timestamp created, String note) {
+        this.id = id;
+        this.customerId = customerId;
+        this.status = status;
+        this.amount = amount;
+        this.created = created;
+        this.note = note;
+    }
+
+    public static FetchedOrderRow fetch(java.sql.ResultSet rs) throws java.sql.SQLException {
+        long c1 = rs.getLong(1);
+        int c2 = rs.getInt(2);
+        String c3 = rs.getString(3);
+        Double c4 = rs.getDouble(4);
+        if (rs.wasNull())
+            c4 = null;
+        Timestamp c5 = rs.getTimestamp(5);
+        String c6 = rs.getString(6);
+        return new FetchedOrderRow(c1, c2, c3, c4, c5, c6);
+    }
+}
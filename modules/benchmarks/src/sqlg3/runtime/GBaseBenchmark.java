@@ -0,0 +1,56 @@
+package sqlg3.runtime;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link GBase} calls including statement preparation, parameter binding, execution and fetching.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GBaseBenchmark {
+
+    private static long nextId(BenchDatabase db, long i) {
+        return i % db.rows + 1;
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+
+        long value = 0;
+    }
+
+    @Benchmark
+    public List<OrderRow> multiRowQuery(BenchDatabase db) throws SQLException {
+        return db.base.multiRowQuery(GBase.query(BenchDatabase.SELECT_ORDERS, GBase.in(100L, Long.class)), OrderRow.class);
+    }
+
+    @Benchmark
+    public OrderRow singleRowQuery(BenchDatabase db, Counter counter) throws SQLException {
+        long id = nextId(db, counter.value++);
+        return db.base.singleRowQuery(
+            GBase.query("SELECT id, customer_id, status, amount, created, note FROM orders WHERE id = ?", GBase.in(id, Long.class)),
+            OrderRow.class
+        );
+    }
+
+    @Benchmark
+    public long[] columnOfLong(BenchDatabase db) throws SQLException {
+        return db.base.columnOfLong(GBase.query("SELECT id FROM orders WHERE id <= ?", GBase.in(100L, Long.class)));
+    }
+
+    @Benchmark
+    public int executeUpdate(BenchDatabase db, Counter counter) throws SQLException {
+        long i = counter.value++;
+        return db.base.executeUpdate(GBase.query(
+            BenchDatabase.UPDATE_ORDER,
+            GBase.in(i % 2 == 0 ? "NEW" : "SHIPPED", String.class), GBase.in(i * 0.25, Double.class), GBase.in(nextId(db, i), Long.class)
+        ));
+    }
+}
@@ -0,0 +1,25 @@
+package sqlg3.runtime;
+
+import java.sql.Timestamp;
+
+/**
+ * Row type as generated by preprocessor without static fetch method.
+ */
+public final class OrderRow {
+
+    public final long id;
+    public final int customerId;
+    public final String status;
+    public final Double amount;
+    public final Timestamp created;
+    public final String note;
+
+    public OrderRow(long id, int customerId, String status, Double amount, Timestamp created, String note) {
+        this.id = id;
+        this.customerId = customerId;
+        this.status = status;
+        this.amount = amount;
+        this.created = created;
+        this.note = note;
+    }
+}
@@ -0,0 +1,81 @@
+package sqlg3.runtime;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding of 20 parameters to a prepared statement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterBenchmark {
+
+    private static final int PARAMETERS = 20;
+
+    private BenchDatabase db;
+    private PreparedStatement stmt;
+    private RuntimeMapper mappers;
+    private final Timestamp now = new Timestamp(System.currentTimeMillis());
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = new BenchDatabase();
+        db.rows = 1;
+        db.setUp();
+        StringBuilder buf = new StringBuilder("SELECT ");
+        for (int i = 0; i < PARAMETERS; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append("CAST(? AS VARCHAR)");
+        }
+        buf.append(" FROM orders");
+        stmt = db.connection.prepareStatement(buf.toString());
+        mappers = db.global.mappers;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        stmt.close();
+        db.tearDown();
+    }
+
+    private List<Parameter> parameters() {
+        List<Parameter> params = new ArrayList<>(PARAMETERS);
+        for (int i = 0; i < PARAMETERS / 4; i++) {
+            params.add(GBase.in((long) i, Long.class));
+            params.add(GBase.in("value", String.class));
+            params.add(GBase.in(i * 0.5, Double.class));
+            params.add(GBase.in(now, Timestamp.class));
+        }
+        return params;
+    }
+
+    @Benchmark
+    public PreparedStatement setParameters() throws SQLException {
+        Parameter.setParameters(mappers, stmt, parameters());
+        return stmt;
+    }
+
+    @Benchmark
+    public PreparedStatement rawJdbc() throws SQLException {
+        int index = 1;
+        for (int i = 0; i < PARAMETERS / 4; i++) {
+            stmt.setLong(index++, i);
+            stmt.setString(index++, "value");
+            stmt.setDouble(index++, i * 0.5);
+            stmt.setTimestamp(index++, now);
+        }
+        return stmt;
+    }
+}
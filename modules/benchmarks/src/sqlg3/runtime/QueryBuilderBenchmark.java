@@ -0,0 +1,45 @@
+package sqlg3.runtime;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query concatenation as done by preprocessor-generated code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+    private long orderId = 42;
+    private String status = "NEW";
+    private int limit = 100;
+    private QueryPiece filter = new QueryPiece("AND customer_id = ?", new Parameter[] {Parameter.in(7, Integer.class)});
+
+    @Benchmark
+    public QueryPiece singlePiece() {
+        return new QueryBuilder(
+            "SELECT id, customer_id, status, amount FROM orders WHERE id = ?", GBase.inP(orderId, Long.class)
+        ).toQuery();
+    }
+
+    @Benchmark
+    public QueryPiece generatedConcatenation() {
+        return new QueryBuilder("SELECT id, customer_id, status, amount FROM orders WHERE status = ?", GBase.inP(status, String.class))
+            .appendLit(" ")
+            .appendLit(filter)
+            .appendLit(" ORDER BY id FETCH FIRST ")
+            .appendLit(limit)
+            .appendLit(" ROWS ONLY")
+            .toQuery();
+    }
+
+    @Benchmark
+    public QueryPiece pieceAdd() {
+        return GBase.query("SELECT id FROM orders WHERE status = ?", GBase.in(status, String.class)).add(filter);
+    }
+}
@@ -0,0 +1,57 @@
+package sqlg3.runtime;
+
+import org.openjdk.jmh.annotations.*;
+import sqlg3.runtime.queries.QueryParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of SQL text executed by {@link GBase} methods, with and without {@link ParsedSqlCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryParserBenchmark {
+
+    @Param({"lookup", "join", "update"})
+    public String statement;
+
+    private String sql;
+    private ParsedSqlCache cache;
+
+    @Setup
+    public void setUp() {
+        switch (statement) {
+        case "lookup":
+            sql = "SELECT id, customer_id, status, amount\n  FROM orders\n WHERE id = ?";
+            break;
+        case "join":
+            sql = "SELECT o.id, o.status, c.name AS customer_name, SUM(l.amount) total\n" +
+                  "  FROM orders o\n" +
+                  "  JOIN customers c ON c.id = o.customer_id\n" +
+                  "  LEFT JOIN order_lines l ON l.order_id = o.id\n" +
+                  " WHERE o.created >= ? AND o.status IN ('NEW', 'SHIPPED')\n" +
+                  "   AND c.region_id = ?\n" +
+                  " GROUP BY o.id, o.status, c.name\n" +
+                  " ORDER BY total DESC";
+            break;
+        default:
+            sql = "UPDATE orders\n   SET status = ?, amount = amount * 1.1, note = 'repriced'\n WHERE customer_id = ? AND status <> 'SHIPPED'";
+            break;
+        }
+        cache = new ParsedSqlCache(ParsedSqlCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Benchmark
+    public String parse() {
+        return QueryParser.parseQuery(sql);
+    }
+
+    @Benchmark
+    public String parseCached() {
+        return cache.parseQuery(sql);
+    }
+}
@@ -0,0 +1,71 @@
+package sqlg3.runtime;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row materialization from an open result set: reflective constructor factory vs generated fetch method
+ * vs hand-written JDBC.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowFetchBenchmark {
+
+    private BenchDatabase db;
+    private PreparedStatement stmt;
+    private RowTypeFactory<OrderRow> constructorFactory;
+    private RowTypeFactory<FetchedOrderRow> generatedFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = new BenchDatabase();
+        db.rows = 1000;
+        db.setUp();
+        stmt = db.connection.prepareStatement(BenchDatabase.SELECT_ORDERS);
+        stmt.setLong(1, db.rows);
+        constructorFactory = db.global.getRowTypeFactory(OrderRow.class, false);
+        generatedFactory = db.global.getRowTypeFactory(FetchedOrderRow.class, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        stmt.close();
+        db.tearDown();
+    }
+
+    @Benchmark
+    public void constructorFactory(Blackhole bh) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(constructorFactory.fetch(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    public void generatedFetch(Blackhole bh) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(generatedFactory.fetch(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    public void rawJdbc(Blackhole bh) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(FetchedOrderRow.fetch(rs));
+            }
+        }
+    }
+}
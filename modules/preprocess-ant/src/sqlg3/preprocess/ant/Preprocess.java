@@ -71,6 +71,37 @@ public class Preprocess extends Task {
         options.txrpc = txrpc;
     }
 
+    /**
+     * @param generateFetch if generate static fetch(ResultSet) methods for row type classes
+     *                      (only when default runtime mapper is used)
+     */
+    public void setGeneratefetch(boolean generateFetch) {
+        options.generateFetch = generateFetch;
+    }
+
+    /**
+     * @param threads number of classes processed in parallel (each thread opens its own database connection)
+     */
+    public void setThreads(int threads) {
+        options.threads = threads;
+    }
+
+    /**
+     * File to store results of preprocessing between runs. Unchanged classes are not preprocessed again.
+     * Database schema changes are not detected, so the file should be deleted after them.
+     */
+    public void setCachefile(File cacheFile) {
+        options.cacheFile = cacheFile.toPath();
+    }
+
+    /**
+     * File with recorded database metadata. Statements found in the file are not run against the database,
+     * others are run and added to the file. Delete the file to record it again after schema changes.
+     */
+    public void setSnapshotfile(File snapshotFile) {
+        options.snapshotFile = snapshotFile.toPath();
+    }
+
     /**
      * Source files root. Package of class is determined relative to the source root.
      */
@@ -0,0 +1,19 @@
+plugins {
+    `lib`
+    `java-gradle-plugin`
+}
+
+dependencies {
+    api(project(":sqlg3-preprocess"))
+}
+
+gradlePlugin {
+    // Plugin jar is published by the common publishing configuration
+    isAutomatedPublishing = false
+    plugins {
+        create("sqlg") {
+            id = "io.github.osobolev.sqlg3.preprocess"
+            implementationClass = "sqlg3.preprocess.gradle.SqlgPlugin"
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package sqlg3.preprocess.gradle;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import sqlg3.preprocess.ConnectionCache;
+import sqlg3.preprocess.Main;
+import sqlg3.preprocess.OptionsBuilder;
+import sqlg3.preprocess.PreprocessException;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+/**
+ * Runs preprocessor in a worker process. Worker processes are reused by Gradle daemon between builds,
+ * so database connections are kept open in the worker and classes loaded by the previous builds stay warm.
+ */
+public abstract class PreprocessAction implements WorkAction<PreprocessParameters> {
+
+    private static final ConnectionCache CONNECTIONS = new ConnectionCache();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(CONNECTIONS::close));
+    }
+
+    private static <T> void set(Property<T> property, Consumer<T> setter) {
+        if (property.isPresent()) {
+            setter.accept(property.get());
+        }
+    }
+
+    private static Path getPath(DirectoryProperty property) {
+        return property.get().getAsFile().toPath();
+    }
+
+    @Override
+    public void execute() {
+        PreprocessParameters p = getParameters();
+        OptionsBuilder options = new OptionsBuilder();
+        options.tmpDir = getPath(p.getTmpDir());
+        options.cleanup = true;
+        set(p.getClasspath(), value -> options.classpath = value);
+        options.javacOptions = p.getJavacOptions().get();
+        set(p.getAddInterface(), value -> options.addInterface = value);
+        set(p.getTxrpc(), value -> options.txrpc = value);
+        set(p.getGenerateFetch(), value -> options.generateFetch = value);
+        set(p.getThreads(), value -> options.threads = value);
+        if (p.getCacheFile().isPresent()) {
+            options.cacheFile = p.getCacheFile().get().getAsFile().toPath();
+        }
+        if (p.getSnapshotFile().isPresent()) {
+            options.snapshotFile = p.getSnapshotFile().get().getAsFile().toPath();
+        }
+        options.srcRoot = getPath(p.getSrcRoot());
+        if (p.getDestRoot().isPresent()) {
+            options.destRoot = getPath(p.getDestRoot());
+        }
+        set(p.getIfacePack(), value -> options.ifacePack = value);
+        set(p.getEncoding(), value -> options.encoding = Charset.forName(value));
+        set(p.getTabSize(), value -> options.tabSize = value);
+        set(p.getDriverClass(), value -> options.driverClass = value);
+        set(p.getMapperClass(), value -> options.mapperClass = value);
+        set(p.getCheckerClass(), value -> options.checkerClass = value);
+        set(p.getUrl(), value -> options.url = value);
+        set(p.getUser(), value -> options.user = value);
+        set(p.getPassword(), value -> options.pass = value);
+        set(p.getWarn(), value -> options.warn = value);
+        set(p.getLog(), value -> options.log = value);
+        set(p.getRuntimeMapperClass(), value -> options.runtimeMapperClass = value);
+        try {
+            new Main(options.build(), CONNECTIONS).processFiles(Collections.emptyList());
+        } catch (PreprocessException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package sqlg3.preprocess.gradle;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+import sqlg3.preprocess.SQLGWarn;
+
+/**
+ * Parameters passed from {@link SqlgPreprocess} task to the worker (see {@link sqlg3.preprocess.OptionsBuilder}).
+ */
+public interface PreprocessParameters extends WorkParameters {
+
+    DirectoryProperty getTmpDir();
+
+    Property<String> getClasspath();
+
+    ListProperty<String> getJavacOptions();
+
+    Property<Boolean> getAddInterface();
+
+    Property<Boolean> getTxrpc();
+
+    Property<Boolean> getGenerateFetch();
+
+    Property<Integer> getThreads();
+
+    RegularFileProperty getCacheFile();
+
+    RegularFileProperty getSnapshotFile();
+
+    DirectoryProperty getSrcRoot();
+
+    DirectoryProperty getDestRoot();
+
+    Property<String> getIfacePack();
+
+    Property<String> getEncoding();
+
+    Property<Integer> getTabSize();
+
+    Property<String> getDriverClass();
+
+    Property<String> getMapperClass();
+
+    Property<String> getCheckerClass();
+
+    Property<String> getUrl();
+
+    Property<String> getUser();
+
+    Property<String> getPassword();
+
+    Property<SQLGWarn> getWarn();
+
+    Property<String> getLog();
+
+    Property<String> getRuntimeMapperClass();
+}
@@ -0,0 +1,40 @@
+package sqlg3.preprocess.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Registers {@link SqlgPreprocess} task named {@value #TASK_NAME}. JDBC driver should be added to
+ * {@value #CONFIGURATION_NAME} configuration. For Java projects the task processes the first source directory
+ * of the main source set using its compile classpath.
+ */
+public final class SqlgPlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "sqlgPreprocess";
+    public static final String CONFIGURATION_NAME = "sqlgPreprocessor";
+
+    @Override
+    public void apply(Project project) {
+        Configuration preprocessor = project.getConfigurations().create(CONFIGURATION_NAME, conf -> {
+            conf.setDescription("JDBC driver and other classes used by SQLG preprocessor");
+            conf.setCanBeConsumed(false);
+        });
+        TaskProvider<SqlgPreprocess> task = project.getTasks().register(TASK_NAME, SqlgPreprocess.class, t -> {
+            t.setDescription("Runs SQLG preprocessor");
+            t.getPreprocessorClasspath().from(preprocessor);
+            t.getCacheFile().convention(project.getLayout().getBuildDirectory().file("sqlg/cache.bin"));
+        });
+        project.getPlugins().withType(JavaPlugin.class, java -> {
+            SourceSet main = project.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            task.configure(t -> {
+                t.getClasspath().from(main.getCompileClasspath());
+                t.getSrcRoot().convention(project.getLayout().dir(project.provider(() -> main.getJava().getSrcDirs().iterator().next())));
+            });
+        });
+    }
+}
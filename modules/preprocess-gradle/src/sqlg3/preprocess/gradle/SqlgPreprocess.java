@@ -0,0 +1,177 @@
+package sqlg3.preprocess.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.gradle.work.DisableCachingByDefault;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+import sqlg3.preprocess.SQLGWarn;
+
+import javax.inject.Inject;
+import java.io.File;
+
+/**
+ * Runs SQLG preprocessor for all files in {@link #getSrcRoot()}. Unset properties have the default values
+ * of {@link sqlg3.preprocess.OptionsBuilder}.
+ * <p>
+ * Task is up-to-date when sources and options did not change since the last run. Preprocessor runs in a
+ * worker process which is reused between builds and keeps database connections open.
+ */
+@DisableCachingByDefault(because = "Source files are rewritten in place")
+public abstract class SqlgPreprocess extends DefaultTask {
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+    /**
+     * JDBC driver, custom mapper and checker classes
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getPreprocessorClasspath();
+
+    /**
+     * Classpath to compile processed files
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @Input
+    public abstract ListProperty<String> getJavacOptions();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getAddInterface();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getTxrpc();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getGenerateFetch();
+
+    @Internal
+    public abstract Property<Integer> getThreads();
+
+    /**
+     * File to store results of preprocessing between runs (see {@link sqlg3.preprocess.OptionsBuilder#cacheFile})
+     */
+    @Internal
+    public abstract RegularFileProperty getCacheFile();
+
+    /**
+     * File with recorded database metadata (see {@link sqlg3.preprocess.OptionsBuilder#snapshotFile})
+     */
+    @Internal
+    public abstract RegularFileProperty getSnapshotFile();
+
+    @Internal
+    public abstract DirectoryProperty getSrcRoot();
+
+    @Internal
+    public abstract DirectoryProperty getDestRoot();
+
+    @Input
+    @Optional
+    public abstract Property<String> getIfacePack();
+
+    @Input
+    @Optional
+    public abstract Property<String> getEncoding();
+
+    @Input
+    @Optional
+    public abstract Property<Integer> getTabSize();
+
+    @Input
+    @Optional
+    public abstract Property<String> getDriverClass();
+
+    @Input
+    @Optional
+    public abstract Property<String> getMapperClass();
+
+    @Input
+    @Optional
+    public abstract Property<String> getCheckerClass();
+
+    @Input
+    public abstract Property<String> getUrl();
+
+    @Input
+    @Optional
+    public abstract Property<String> getUser();
+
+    /**
+     * Not tracked as task input, so it is not stored in the task history
+     */
+    @Internal
+    public abstract Property<String> getPassword();
+
+    @Input
+    @Optional
+    public abstract Property<SQLGWarn> getWarn();
+
+    @Internal
+    public abstract Property<String> getLog();
+
+    @Input
+    @Optional
+    public abstract Property<String> getRuntimeMapperClass();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getSourceFiles() {
+        return getSrcRoot().getAsFileTree().matching(pattern -> pattern.include("**/*.java"));
+    }
+
+    /**
+     * Processed sources and generated interfaces
+     */
+    @OutputDirectories
+    public FileCollection getOutputDirectories() {
+        return getObjects().fileCollection().from(getSrcRoot(), getDestRoot().orElse(getSrcRoot()));
+    }
+
+    @TaskAction
+    public void preprocess() {
+        WorkQueue queue = getWorkerExecutor().processIsolation(spec -> spec.getClasspath().from(getPreprocessorClasspath()));
+        File tmpDir = getTemporaryDir();
+        queue.submit(PreprocessAction.class, p -> {
+            p.getTmpDir().set(tmpDir);
+            p.getClasspath().set(getClasspath().isEmpty() ? null : getClasspath().getAsPath());
+            p.getJavacOptions().set(getJavacOptions());
+            p.getAddInterface().set(getAddInterface());
+            p.getTxrpc().set(getTxrpc());
+            p.getGenerateFetch().set(getGenerateFetch());
+            p.getThreads().set(getThreads());
+            p.getCacheFile().set(getCacheFile());
+            p.getSnapshotFile().set(getSnapshotFile());
+            p.getSrcRoot().set(getSrcRoot());
+            p.getDestRoot().set(getDestRoot());
+            p.getIfacePack().set(getIfacePack());
+            p.getEncoding().set(getEncoding());
+            p.getTabSize().set(getTabSize());
+            p.getDriverClass().set(getDriverClass());
+            p.getMapperClass().set(getMapperClass());
+            p.getCheckerClass().set(getCheckerClass());
+            p.getUrl().set(getUrl());
+            p.getUser().set(getUser());
+            p.getPassword().set(getPassword());
+            p.getWarn().set(getWarn());
+            p.getLog().set(getLog());
+            p.getRuntimeMapperClass().set(getRuntimeMapperClass());
+        });
+    }
+}
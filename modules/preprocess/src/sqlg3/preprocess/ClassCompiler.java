@@ -1,30 +1,116 @@
 package sqlg3.preprocess;
 
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.StringTokenizer;
+import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Compiles all preprocessed files with a single javac run. Class files are not written to disk,
+ * they are loaded from memory by one class loader shared by all compiled classes.
+ */
 final class ClassCompiler {
 
-    private final Path tmpDir;
+    private final Map<String, byte[]> classes = new HashMap<>();
+    private final Map<String, Path> sources = new HashMap<>();
 
-    ClassCompiler(Path tmpDir) {
-        this.tmpDir = tmpDir;
+    private final class ClassOutput extends SimpleJavaFileObject {
+
+        private final String className;
+
+        ClassOutput(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    classes.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    private final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) throws IOException {
+            if (kind == JavaFileObject.Kind.CLASS) {
+                if (sibling != null && "file".equals(sibling.toUri().getScheme())) {
+                    sources.put(className, Paths.get(sibling.toUri()));
+                }
+                return new ClassOutput(className);
+            }
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+    }
+
+    /**
+     * Compiled classes are loaded child-first, so they take precedence over the same classes
+     * visible to the preprocessor itself.
+     */
+    private final class MemoryClassLoader extends URLClassLoader {
+
+        MemoryClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null)
+                return super.loadClass(name, resolve);
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                c = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(c);
+            }
+            return c;
+        }
     }
 
-    private void compile(List<Path> srcRoots, Charset encoding, String classpath, List<String> javacOptions, Path file) throws ParseException {
+    private final String classpath;
+    private final ClassLoader loader;
+
+    ClassCompiler(String classpath) throws MalformedURLException {
+        this.classpath = classpath;
+        List<URL> urls = new ArrayList<>();
+        if (classpath != null) {
+            StringTokenizer tok = new StringTokenizer(classpath, File.pathSeparator);
+            while (tok.hasMoreTokens()) {
+                String t = tok.nextToken();
+                urls.add(Paths.get(t).toUri().toURL());
+            }
+        }
+        this.loader = new MemoryClassLoader(urls.toArray(new URL[0]), getClass().getClassLoader());
+    }
+
+    void compile(List<Path> srcRoots, Charset encoding, List<String> javacOptions, List<Path> files) throws ParseException {
+        if (files.isEmpty())
+            return;
         List<String> params = new ArrayList<>(javacOptions);
         if (encoding != null) {
             params.addAll(Arrays.asList("-encoding", encoding.name()));
@@ -38,18 +124,20 @@ final class ClassCompiler {
                 "-classpath", classpath
             ));
         }
-        params.addAll(Arrays.asList(
-            "-parameters",
-            "-d", tmpDir.toAbsolutePath().toString(),
-            file.toAbsolutePath().toString()
-        ));
+        params.add("-parameters");
 
-        String[] arguments = params.toArray(new String[0]);
         try {
             JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-            ByteArrayOutputStream buf = new ByteArrayOutputStream();
-            if (compiler.run(null, buf, buf, arguments) != 0) {
-                throw new ParseException(buf.toString());
+            StringWriter buf = new StringWriter();
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, encoding);
+                 MemoryFileManager memoryManager = new MemoryFileManager(fileManager)) {
+                Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(
+                    files.stream().map(p -> p.toAbsolutePath().toFile()).collect(Collectors.toList())
+                );
+                JavaCompiler.CompilationTask task = compiler.getTask(buf, memoryManager, null, params, null, units);
+                if (!task.call()) {
+                    throw new ParseException(buf.toString());
+                }
             }
         } catch (ParseException ex) {
             throw ex;
@@ -58,45 +146,112 @@ final class ClassCompiler {
         }
     }
 
-    private static boolean isFromSameSource(String className, String name) {
-        if (name.equals(className))
-            return true;
-        if (name.startsWith(className)) {
-            return name.substring(className.length()).startsWith("$");
-        } else {
-            return false;
-        }
+    Class<?> load(String className) throws ClassNotFoundException {
+        return loader.loadClass(className);
     }
 
-    Class<?> compileAndLoad(List<Path> srcRoots, Path file, String className, Charset encoding, String classpath,
-                            List<String> javacOptions) throws MalformedURLException, ClassNotFoundException, ParseException {
-        compile(srcRoots, encoding, classpath, javacOptions, file);
-
-        StringTokenizer tok = new StringTokenizer(classpath, File.pathSeparator);
-        URL[] urls = new URL[1 + tok.countTokens()];
-        urls[0] = tmpDir.toUri().toURL();
-        int i = 1;
-        while (tok.hasMoreTokens()) {
-            String t = tok.nextToken();
-            urls[i] = Paths.get(t).toUri().toURL();
-            i++;
-        }
-        URLClassLoader cll = new URLClassLoader(urls, getClass().getClassLoader()) {
-            protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-                if (isFromSameSource(className, name)) {
-                    Class<?> c = findLoadedClass(name);
-                    if (c == null) {
-                        c = findClass(name);
+    /**
+     * Adds names of classes referenced from the constant pool of the class file: class constants
+     * and type descriptors of fields and methods.
+     */
+    private static void addReferencedClasses(byte[] bytes, Set<String> names) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipBytes(8);
+        int count = in.readUnsignedShort();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case 1:
+                String str = in.readUTF();
+                names.add(str.replace('/', '.'));
+                int from = 0;
+                while (true) {
+                    int start = str.indexOf('L', from);
+                    if (start < 0)
+                        break;
+                    int end = start + 1;
+                    while (end < str.length() && str.charAt(end) != ';' && str.charAt(end) != '<') {
+                        end++;
                     }
-                    if (resolve) {
-                        resolveClass(c);
-                    }
-                    return c;
-                } else {
-                    return super.loadClass(name, resolve);
+                    names.add(str.substring(start + 1, end).replace('/', '.'));
+                    from = start + 1;
                 }
+                break;
+            case 7:
+            case 8:
+            case 16:
+            case 19:
+            case 20:
+                in.skipBytes(2);
+                break;
+            case 15:
+                in.skipBytes(3);
+                break;
+            case 5:
+            case 6:
+                in.skipBytes(8);
+                i++;
+                break;
+            default:
+                in.skipBytes(4);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns source files of all compiled classes used by the given class directly or indirectly
+     * (including its own source file). Used classes are found in the constant pools of class files,
+     * so the result may contain some extra files.
+     */
+    Set<Path> getSourceDependencies(String className) throws IOException {
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(className);
+        Set<Path> result = new HashSet<>();
+        while (!queue.isEmpty()) {
+            String name = queue.remove();
+            byte[] bytes = classes.get(name);
+            if (bytes == null || !visited.add(name))
+                continue;
+            Path source = sources.get(name);
+            if (source != null) {
+                result.add(source);
             }
-        };
-        return cll.loadClass(className);
+            Set<String> referenced = new HashSet<>();
+            addReferencedClasses(bytes, referenced);
+            for (String ref : referenced) {
+                if (classes.containsKey(ref) && !visited.contains(ref)) {
+                    queue.add(ref);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads class by its {@link Class#getName()}, including primitive types.
+     */
+    Class<?> loadType(String name) throws ClassNotFoundException {
+        switch (name) {
+        case "boolean":
+            return boolean.class;
+        case "byte":
+            return byte.class;
+        case "char":
+            return char.class;
+        case "short":
+            return short.class;
+        case "int":
+            return int.class;
+        case "long":
+            return long.class;
+        case "float":
+            return float.class;
+        case "double":
+            return double.class;
+        default:
+            return Class.forName(name, false, loader);
+        }
     }
 }
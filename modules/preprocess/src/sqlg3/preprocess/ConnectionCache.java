@@ -0,0 +1,107 @@
+package sqlg3.preprocess;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Keeps database connections open between preprocessor runs, so repeated runs in the same JVM
+ * (for example, in a persistent build worker) do not pay for driver loading and connecting.
+ * Connections are reused only by runs with the same driver, URL, user and password.
+ * <p>
+ * Pass the cache to {@link Main#Main(Options, ConnectionCache)} and close it when it is no longer required.
+ */
+public final class ConnectionCache implements AutoCloseable {
+
+    private final Map<List<String>, Deque<Connection>> idle = new HashMap<>();
+    private boolean closed = false;
+
+    private static List<String> key(String driver, String url, String user, String pass) {
+        return Arrays.asList(driver, url, user, pass);
+    }
+
+    static Connection openConnection(String driver, String url, String user, String pass) throws SQLException {
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException ex) {
+                throw new SQLException(ex);
+            }
+        }
+        Connection conn = DriverManager.getConnection(url, user, pass);
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException ex) {
+            closeQuietly(conn);
+            throw ex;
+        }
+        return conn;
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ex) {
+            // ignore
+        }
+    }
+
+    private static boolean isAlive(Connection conn) {
+        try {
+            return conn.isValid(5);
+        } catch (SQLException | AbstractMethodError ex) {
+            return false;
+        }
+    }
+
+    Connection take(String driver, String url, String user, String pass) throws SQLException {
+        while (true) {
+            Connection conn;
+            synchronized (this) {
+                Deque<Connection> connections = idle.get(key(driver, url, user, pass));
+                conn = connections == null ? null : connections.pollFirst();
+            }
+            if (conn == null)
+                break;
+            if (isAlive(conn))
+                return conn;
+            closeQuietly(conn);
+        }
+        return openConnection(driver, url, user, pass);
+    }
+
+    void release(String driver, String url, String user, String pass, Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            closeQuietly(conn);
+            return;
+        }
+        synchronized (this) {
+            if (!closed) {
+                idle.computeIfAbsent(key(driver, url, user, pass), k -> new ArrayDeque<>()).addFirst(conn);
+                return;
+            }
+        }
+        closeQuietly(conn);
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    @Override
+    public void close() {
+        List<Connection> toClose = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Deque<Connection> connections : idle.values()) {
+                toClose.addAll(connections);
+            }
+            idle.clear();
+        }
+        for (Connection conn : toClose) {
+            closeQuietly(conn);
+        }
+    }
+}
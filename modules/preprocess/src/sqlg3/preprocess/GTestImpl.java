@@ -7,7 +7,7 @@ import sqlg3.types.SQLGException;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,15 +25,13 @@ final class GTestImpl extends GTest {
     final SqlChecker checker;
     private final Mapper mapper;
     final RuntimeMapper mappers;
-    private final Map<Class<?>, List<RowTypeInfo>> generated;
+    private Map<Class<?>, List<RowTypeInfo>> generated;
 
-    GTestImpl(Connection connection, SqlChecker checker, Mapper mapper, RuntimeMapper mappers,
-              Map<Class<?>, List<RowTypeInfo>> generated) {
+    GTestImpl(Connection connection, SqlChecker checker, Mapper mapper, RuntimeMapper mappers) {
         this.connection = connection;
         this.checker = checker;
         this.mapper = mapper;
         this.mappers = mappers;
-        this.generated = generated;
     }
 
     @Override
@@ -42,14 +40,14 @@ final class GTestImpl extends GTest {
     }
 
     @Override
-    public void getRowTypeFields(Class<?> rowType, ResultSet rs, boolean meta) throws SQLException {
-        List<ColumnInfo> columns = mapper.getFields(rs.getMetaData(), meta, mappers);
+    public void getRowTypeFields(Class<?> rowType, ResultSetMetaData rsmd, boolean meta) throws SQLException {
+        List<ColumnInfo> columns = mapper.getFields(rsmd, meta, mappers);
         RowTypeInfo info = new RowTypeInfo(displayEntryName, columns, meta);
         generated.computeIfAbsent(rowType, k -> new ArrayList<>()).add(info);
     }
 
-    private ColumnInfo getOneColumn(ResultSet rs) throws SQLException {
-        List<ColumnInfo> columns = mapper.getFields(rs.getMetaData(), false, mappers);
+    private ColumnInfo getOneColumn(ResultSetMetaData rsmd) throws SQLException {
+        List<ColumnInfo> columns = mapper.getFields(rsmd, false, mappers);
         if (columns.size() != 1) {
             throw new SQLException("More than one column in result set");
         }
@@ -57,8 +55,8 @@ final class GTestImpl extends GTest {
     }
 
     @Override
-    public void checkOneColumn(ResultSet rs, Class<?> cls) throws SQLException {
-        ColumnInfo col1 = getOneColumn(rs);
+    public void checkOneColumn(ResultSetMetaData rsmd, Class<?> cls) throws SQLException {
+        ColumnInfo col1 = getOneColumn(rsmd);
         if (!cls.equals(col1.type)) {
             if (RowTypeInfo.getWiderOf(cls, col1.type) == null) {
                 throw new SQLException("Column is of type " + col1.type.getCanonicalName() + ", but " + cls.getCanonicalName() + " required");
@@ -71,6 +69,11 @@ final class GTestImpl extends GTest {
         checker.checkSql(connection, stmt, sql);
     }
 
+    @Override
+    public String getNoRowsSql(String sql) {
+        return checker.getNoRowsSql(sql);
+    }
+
     @Override
     public Class<?> setParamType(String paramId, Class<?> paramClass) {
         ParamName paramName = ParamName.fromId(paramId);
@@ -101,8 +104,9 @@ final class GTestImpl extends GTest {
         checker.checkStoredProcName(connection, procNameToCall, parameters);
     }
 
-    void startClass(Map<ParamName, List<ParamCutPaste>> bindMap) {
+    void startClass(Map<ParamName, List<ParamCutPaste>> bindMap, Map<Class<?>, List<RowTypeInfo>> generated) {
         this.bindMap = bindMap;
+        this.generated = generated;
         this.paramTypeMap.clear();
     }
 
@@ -1,20 +1,35 @@
 package sqlg3.preprocess;
 
 import sqlg3.runtime.GBase;
+import sqlg3.runtime.GTest;
+import sqlg3.runtime.RuntimeMapperImpl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Main {
 
     private final Options o;
+    private final ConnectionCache connections;
 
     public Main(Options o) {
+        this(o, null);
+    }
+
+    /**
+     * @param connections connections kept open between runs (see {@link ConnectionCache})
+     */
+    public Main(Options o, ConnectionCache connections) {
         this.o = o;
+        this.connections = connections;
     }
 
     private static final class JavaClassFile {
@@ -49,10 +64,15 @@ public final class Main {
 
         final JavaClassFile file;
         final ToProcess src;
+        /**
+         * Not null if file is not changed since the last run (then it is not parsed and src is null)
+         */
+        final PreprocessCache.Entry cached;
 
-        InputFile(JavaClassFile file, ToProcess src) {
+        InputFile(JavaClassFile file, ToProcess src, PreprocessCache.Entry cached) {
             this.file = file;
             this.src = src;
+            this.cached = cached;
         }
     }
 
@@ -61,11 +81,13 @@ public final class Main {
         final InputFile input;
         final Class<?> cls;
         final List<RunMethod> methods;
+        final Map<Class<?>, List<RowTypeInfo>> generated;
 
-        RunResult(InputFile input, Class<?> cls, List<RunMethod> methods) {
+        RunResult(InputFile input, Class<?> cls, List<RunMethod> methods, Map<Class<?>, List<RowTypeInfo>> generated) {
             this.input = input;
             this.cls = cls;
             this.methods = methods;
+            this.generated = generated;
         }
     }
 
@@ -121,7 +143,7 @@ public final class Main {
         }
     }
 
-    private List<InputFile> getInputs(List<Path> inputFiles, ParseContext pctx) throws IOException, ParseException {
+    private List<InputFile> getInputs(List<Path> inputFiles, ParseContext pctx, PreprocessCache cache) throws IOException, ParseException {
         List<Path> in;
         if (inputFiles.isEmpty()) {
             in = new ArrayList<>();
@@ -137,6 +159,13 @@ public final class Main {
 
         List<InputFile> inputs = new ArrayList<>(javaFiles.size());
         for (JavaClassFile file : javaFiles) {
+            if (cache != null) {
+                PreprocessCache.Entry cached = cache.getUpToDate(file.path, getInterface(file).path);
+                if (cached != null) {
+                    inputs.add(new InputFile(file, null, cached));
+                    continue;
+                }
+            }
             Parser parser = pctx.newParser(file.path, file.simpleClassName, file.fullClassName);
             HeaderResult header;
             ParseResult parsed;
@@ -163,15 +192,127 @@ public final class Main {
             } else {
                 src = null;
             }
-            inputs.add(new InputFile(file, src));
+            inputs.add(new InputFile(file, src, null));
         }
         return inputs;
     }
 
+    private interface TestSource {
+
+        /**
+         * Returns test for the current thread, creating it if required.
+         */
+        GTestImpl getTest() throws Exception;
+    }
+
+    /**
+     * @param tests source of test which is called only when class has to be run
+     */
+    private RunResult runFile(TestSource tests, RunLog log, ClassCompiler compiler,
+                              InputFile input) throws Throwable {
+        ToProcess src = input.src;
+        if (src == null)
+            return null;
+        ParseResult parsed = src.parsed;
+        Class<?> cls = compiler.load(input.file.fullClassName);
+        if (!GBase.class.isAssignableFrom(cls))
+            return null;
+        GTestImpl test = tests.getTest();
+        MethodRunner runner = new MethodRunner(
+            test, cls, input.file.simpleClassName, parsed.entries, log
+        );
+        Map<Class<?>, List<RowTypeInfo>> generated = new LinkedHashMap<>();
+        List<RunMethod> runMethods = runner.checkEntries(parsed.bindMap, parsed.parameters, generated);
+        return new RunResult(input, cls, runMethods, generated);
+    }
+
+    /**
+     * Runs classes on {@link Options#threads} workers, each with its own connection.
+     * Connections are opened only when worker runs a class, so inputs taken from the cache do not open them.
+     * Results (and log output) are returned in the order of inputs, so they do not depend on scheduling.
+     */
+    private List<RunResult> runParallel(RunGlobalContext runGlobal, RunLog log, ClassCompiler compiler,
+                                        List<InputFile> allInputs) throws Throwable {
+        List<InputFile> inputs = new ArrayList<>();
+        for (InputFile input : allInputs) {
+            if (input.src != null) {
+                inputs.add(input);
+            }
+        }
+        if (inputs.isEmpty())
+            return new ArrayList<>();
+        int threads = Math.min(o.threads, inputs.size());
+        // Each thread holds at most one test at a time, so not more than threads tests are created
+        Queue<GTestImpl> idleTests = new ConcurrentLinkedQueue<>();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "sqlg-preprocess-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<RunResult>> futures = new ArrayList<>(inputs.size());
+            List<ByteArrayOutputStream> logs = new ArrayList<>(inputs.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                InputFile input = inputs.get(i);
+                ByteArrayOutputStream logBuf = new ByteArrayOutputStream();
+                RunLog fileLog = log == null ? null : new RunLog(false, () -> new PrintStream(logBuf, true, "UTF-8"));
+                logs.add(logBuf);
+                futures.add(executor.submit(() -> {
+                    GTestImpl[] taken = new GTestImpl[1];
+                    TestSource tests = () -> {
+                        if (taken[0] == null) {
+                            GTestImpl test = idleTests.poll();
+                            if (test == null) {
+                                test = runGlobal.newWorkerTest();
+                            }
+                            GTest.setTest(test);
+                            taken[0] = test;
+                        }
+                        return taken[0];
+                    };
+                    try {
+                        return runFile(tests, fileLog, compiler, input);
+                    } catch (Throwable ex) {
+                        throw new ExecutionException(ex);
+                    } finally {
+                        if (taken[0] != null) {
+                            GTest.setTest(null);
+                            idleTests.add(taken[0]);
+                        }
+                    }
+                }));
+            }
+            List<RunResult> runResults = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                RunResult rr;
+                try {
+                    rr = futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    while (cause instanceof ExecutionException && cause.getCause() != null) {
+                        cause = cause.getCause();
+                    }
+                    throw cause;
+                }
+                if (log != null) {
+                    log.getLog().print(logs.get(i).toString("UTF-8"));
+                }
+                if (rr != null) {
+                    runResults.add(rr);
+                }
+            }
+            return runResults;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public void doProcessFiles(List<Path> inputFiles) throws Throwable {
-        // 1. Parse & check modification time
+        // 1. Parse & check cache
         ParseContext pctx = new ParseContext(o.encoding);
-        List<InputFile> inputs = getInputs(inputFiles, pctx);
+        PreprocessCache cache = o.cacheFile == null || o.unpreprocess ? null : PreprocessCache.load(o);
+        List<InputFile> inputs = getInputs(inputFiles, pctx, cache);
         if (inputs.isEmpty())
             return;
         if (o.unpreprocess) {
@@ -192,51 +333,79 @@ public final class Main {
         if (!Objects.equals(o.srcRoot, o.destRoot)) {
             srcRoots.add(o.destRoot);
         }
-        try (RunGlobalContext runGlobal = new RunGlobalContext(o); RunLog log = o.getLog()) {
+        try (RunGlobalContext runGlobal = new RunGlobalContext(o, connections); RunLog log = o.getLog()) {
             // 2. Copy to temp
             Path tmpDir = runGlobal.getTmpDir();
-            Path[] compFiles = new Path[inputs.size()];
-            for (int i = 0; i < inputs.size(); i++) {
-                InputFile input = inputs.get(i);
+            List<Path> compFiles = new ArrayList<>(inputs.size());
+            Map<Path, Path> compToInput = new HashMap<>();
+            for (InputFile input : inputs) {
+                if (input.cached != null)
+                    continue;
                 ToProcess src = input.src;
                 Path dir = ClassUtils.packageDir(tmpDir, input.file.pack);
                 Files.createDirectories(dir);
-                compFiles[i] = dir.resolve(input.file.path.getFileName());
+                Path compFile = dir.resolve(input.file.path.getFileName());
                 if (src != null) {
                     ParseResult parsed = src.parsed;
                     String newText = parsed.doCutPaste();
-                    FileUtils.writeFile(compFiles[i], newText, o.encoding);
+                    FileUtils.writeFile(compFile, newText, o.encoding);
+                    compFiles.add(compFile);
+                    compToInput.put(compFile.toAbsolutePath().normalize(), input.file.path);
                 } else {
-                    Files.copy(input.file.path, compFiles[i], StandardCopyOption.REPLACE_EXISTING);
+                    Files.copy(input.file.path, compFile, StandardCopyOption.REPLACE_EXISTING);
                 }
             }
 
-            // 3. Run methods
-            List<RunResult> runResults = new ArrayList<>();
-            for (int i = 0; i < inputs.size(); i++) {
-                InputFile input = inputs.get(i);
-                ToProcess src = input.src;
-                if (src == null)
-                    continue;
-                ParseResult parsed = src.parsed;
-                Class<?> cls = new ClassCompiler(tmpDir).compileAndLoad(
-                    srcRoots, compFiles[i], input.file.fullClassName, o.encoding, o.classpath, o.javacOptions
-                );
-                if (GBase.class.isAssignableFrom(cls)) {
-                    MethodRunner runner = new MethodRunner(
-                        runGlobal.getTest(), cls, input.file.simpleClassName, parsed.entries, log
-                    );
-                    List<RunMethod> runMethods = runner.checkEntries(parsed.bindMap, parsed.parameters);
-                    runResults.add(new RunResult(input, cls, runMethods));
+            // 3. Compile all files at once & run methods
+            ClassCompiler compiler = new ClassCompiler(o.classpath);
+            compiler.compile(srcRoots, o.encoding, o.javacOptions, compFiles);
+            List<RunResult> runResults;
+            if (o.threads > 1) {
+                runResults = runParallel(runGlobal, log, compiler, inputs);
+            } else {
+                runResults = new ArrayList<>();
+                for (InputFile input : inputs) {
+                    RunResult rr = runFile(runGlobal::getTest, log, compiler, input);
+                    if (rr != null) {
+                        runResults.add(rr);
+                    }
+                }
+            }
+            runGlobal.saveSnapshot();
+            Map<InputFile, RunResult> results = new HashMap<>();
+            Map<String, Class<?>> rowTypes = new HashMap<>();
+            for (RunResult rr : runResults) {
+                results.put(rr.input, rr);
+                for (Class<?> rowType : rr.generated.keySet()) {
+                    rowTypes.put(rowType.getName(), rowType);
+                }
+            }
+            Map<Class<?>, List<RowTypeInfo>> generated = new LinkedHashMap<>();
+            for (InputFile input : inputs) {
+                RunResult rr = results.get(input);
+                if (rr != null) {
+                    for (Map.Entry<Class<?>, List<RowTypeInfo>> entry : rr.generated.entrySet()) {
+                        generated.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+                    }
+                } else if (input.cached != null) {
+                    // Row types not used by changed classes need not be generated again
+                    for (PreprocessCache.CachedRowType cached : input.cached.rowTypes) {
+                        Class<?> rowType = rowTypes.get(cached.rowType);
+                        if (rowType != null) {
+                            generated.computeIfAbsent(rowType, k -> new ArrayList<>()).add(cached.toRowTypeInfo(compiler));
+                        }
+                    }
                 }
             }
 
             // 4. Generate row types
             String tab = o.getTab();
-            for (Map.Entry<Class<?>, List<RowTypeInfo>> entry : runGlobal.generated.entrySet()) {
+            // generated fetch uses JDBC getters directly, so it cannot respect custom mappers
+            boolean generateFetch = o.generateFetch && RuntimeMapperImpl.class.getName().equals(o.runtimeMapperClass);
+            for (Map.Entry<Class<?>, List<RowTypeInfo>> entry : generated.entrySet()) {
                 Class<?> cls = entry.getKey();
                 RowTypeInfo rowType = checkCompatibility(cls, entry.getValue());
-                String body = rowType.generateRowTypeBody("", tab, cls);
+                String body = rowType.generateRowTypeBody("", tab, cls, generateFetch);
                 CodeGenerator.generateImplOut(srcRoots, o.encoding, cls, body);
             }
 
@@ -271,6 +440,36 @@ public final class Main {
                 Files.createDirectories(src.iface.path.getParent());
                 FileUtils.writeFile(src.iface.path, ifaceText, o.encoding);
             }
+
+            // 6. Save results to cache
+            if (cache != null) {
+                cache.clearHashes();
+                for (InputFile input : inputs) {
+                    RunResult rr = results.get(input);
+                    if (rr != null) {
+                        List<PreprocessCache.CachedRowType> cachedRowTypes = new ArrayList<>();
+                        for (Map.Entry<Class<?>, List<RowTypeInfo>> entry : rr.generated.entrySet()) {
+                            for (RowTypeInfo info : entry.getValue()) {
+                                cachedRowTypes.add(PreprocessCache.CachedRowType.create(entry.getKey(), info));
+                            }
+                        }
+                        List<Path> dependencies = new ArrayList<>();
+                        for (Path source : compiler.getSourceDependencies(rr.cls.getName())) {
+                            dependencies.add(compToInput.getOrDefault(source.toAbsolutePath().normalize(), source));
+                        }
+                        cache.put(input.file.path, input.src.iface.path, dependencies, cachedRowTypes);
+                    } else if (input.cached != null) {
+                        Path iface = input.cached.ifaceHash == null ? null : getInterface(input.file).path;
+                        cache.put(input.file.path, iface, input.cached.dependencies.keySet(), input.cached.rowTypes);
+                    } else if (input.src == null) {
+                        cache.put(input.file.path, null, Collections.emptyList(), Collections.emptyList());
+                    } else {
+                        cache.remove(input.file.path);
+                    }
+                }
+                cache.removeDeleted();
+                cache.save();
+            }
         }
     }
 
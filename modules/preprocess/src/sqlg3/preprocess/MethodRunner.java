@@ -57,12 +57,16 @@ final class MethodRunner {
         }
     }
 
-    List<RunMethod> checkEntries(Map<ParamName, List<ParamCutPaste>> bindMap, List<ParamName> allParameters) throws Throwable {
+    /**
+     * @param generated map to which row type information is added
+     */
+    List<RunMethod> checkEntries(Map<ParamName, List<ParamCutPaste>> bindMap, List<ParamName> allParameters,
+                                 Map<Class<?>, List<RowTypeInfo>> generated) throws Throwable {
         Map<String, List<Method>> methodMap = Arrays.stream(cls.getDeclaredMethods()).collect(Collectors.groupingBy(Method::getName));
         if (log != null) {
             log.getLog().println(cls.getCanonicalName());
         }
-        test.startClass(bindMap);
+        test.startClass(bindMap, generated);
         List<RunMethod> entryMethods = new ArrayList<>();
         for (MethodEntry entry : entries) {
             String displayEntryName = displayClassName + "." + entry.methodToCall;
@@ -17,6 +17,10 @@ public final class Options {
     public final boolean unpreprocess;
     public final boolean addInterface;
     public final boolean txrpc;
+    public final boolean generateFetch;
+    public final int threads;
+    public final Path cacheFile;
+    public final Path snapshotFile;
 
     public final Path srcRoot;
 
@@ -36,7 +40,7 @@ public final class Options {
     public final String log;
     public final String runtimeMapperClass;
 
-    Options(Path tmpDir, boolean cleanup, String classpath, List<String> javacOptions, boolean unpreprocess, boolean addInterface, boolean txrpc, Path srcRoot, Path destRoot, String ifacePack, Charset encoding, int tabSize, String driverClass, String mapperClass, String checkerClass, String url, String user, String pass, SQLGWarn warn, String log, String runtimeMapperClass) {
+    Options(Path tmpDir, boolean cleanup, String classpath, List<String> javacOptions, boolean unpreprocess, boolean addInterface, boolean txrpc, boolean generateFetch, int threads, Path cacheFile, Path snapshotFile, Path srcRoot, Path destRoot, String ifacePack, Charset encoding, int tabSize, String driverClass, String mapperClass, String checkerClass, String url, String user, String pass, SQLGWarn warn, String log, String runtimeMapperClass) {
         this.tmpDir = tmpDir;
         this.cleanup = cleanup;
         this.classpath = classpath;
@@ -44,6 +48,10 @@ public final class Options {
         this.unpreprocess = unpreprocess;
         this.addInterface = addInterface;
         this.txrpc = txrpc;
+        this.generateFetch = generateFetch;
+        this.threads = threads;
+        this.cacheFile = cacheFile;
+        this.snapshotFile = snapshotFile;
         this.srcRoot = srcRoot;
         this.destRoot = destRoot;
         this.ifacePack = ifacePack;
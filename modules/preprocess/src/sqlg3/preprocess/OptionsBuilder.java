@@ -19,6 +19,10 @@ public final class OptionsBuilder {
     public boolean unpreprocess = false;
     public boolean addInterface = false;
     public boolean txrpc = true;
+    public boolean generateFetch = false;
+    public int threads = 1;
+    public Path cacheFile = null;
+    public Path snapshotFile = null;
 
     public Path srcRoot = Paths.get(".");
 
@@ -49,7 +53,7 @@ public final class OptionsBuilder {
             destRoot = this.destRoot;
         }
         return new Options(
-            tmpDir, cleanup, classpath, javacOptions, unpreprocess, addInterface, txrpc, srcRoot, destRoot, ifacePack,
+            tmpDir, cleanup, classpath, javacOptions, unpreprocess, addInterface, txrpc, generateFetch, threads, cacheFile, snapshotFile, srcRoot, destRoot, ifacePack,
             encoding, tabSize, driverClass, mapperClass, checkerClass, url, user, pass, warn, log, runtimeMapperClass
         );
     }
@@ -0,0 +1,294 @@
+package sqlg3.preprocess;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Results of preprocessing stored between runs (see {@link Options#cacheFile}).
+ * Class is not preprocessed again if its source, its interface and sources of all classes it uses
+ * did not change since the last run; row type columns of such classes are taken from the cache.
+ * Cache is discarded when preprocessing options change.
+ */
+final class PreprocessCache {
+
+    private static final int VERSION = 1;
+
+    static final class CachedRowType {
+
+        final String rowType;
+        final String displayEntryName;
+        final boolean meta;
+        final List<String> columnTypes;
+        final List<String> columnNames;
+
+        private CachedRowType(String rowType, String displayEntryName, boolean meta,
+                              List<String> columnTypes, List<String> columnNames) {
+            this.rowType = rowType;
+            this.displayEntryName = displayEntryName;
+            this.meta = meta;
+            this.columnTypes = columnTypes;
+            this.columnNames = columnNames;
+        }
+
+        static CachedRowType create(Class<?> rowType, RowTypeInfo info) {
+            List<String> columnTypes = new ArrayList<>(info.columns.size());
+            List<String> columnNames = new ArrayList<>(info.columns.size());
+            for (ColumnInfo column : info.columns) {
+                columnTypes.add(column.type.getName());
+                columnNames.add(column.name);
+            }
+            return new CachedRowType(rowType.getName(), info.displayEntryName, info.meta, columnTypes, columnNames);
+        }
+
+        RowTypeInfo toRowTypeInfo(ClassCompiler compiler) throws ClassNotFoundException {
+            List<ColumnInfo> columns = new ArrayList<>(columnTypes.size());
+            for (int i = 0; i < columnTypes.size(); i++) {
+                columns.add(new ColumnInfo(compiler.loadType(columnTypes.get(i)), columnNames.get(i)));
+            }
+            return new RowTypeInfo(displayEntryName, columns, meta);
+        }
+    }
+
+    static final class Entry {
+
+        final String hash;
+        /**
+         * Hash of the generated interface, null for files which are not preprocessed
+         */
+        final String ifaceHash;
+        /**
+         * Hashes of the sources of used classes
+         */
+        final Map<Path, String> dependencies;
+        final List<CachedRowType> rowTypes;
+
+        Entry(String hash, String ifaceHash, Map<Path, String> dependencies, List<CachedRowType> rowTypes) {
+            this.hash = hash;
+            this.ifaceHash = ifaceHash;
+            this.dependencies = dependencies;
+            this.rowTypes = rowTypes;
+        }
+    }
+
+    private final Path file;
+    private final String fingerprint;
+    private final Map<Path, Entry> entries;
+    private final Map<Path, String> hashes = new HashMap<>();
+
+    private PreprocessCache(Path file, String fingerprint, Map<Path, Entry> entries) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.entries = entries;
+    }
+
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder buf = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            buf.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Hash of all options which affect results of preprocessing.
+     */
+    private static String getFingerprint(Options o) {
+        List<Object> values = Arrays.asList(
+            VERSION, o.classpath, o.javacOptions, o.addInterface, o.txrpc, o.generateFetch,
+            key(o.srcRoot), key(o.destRoot), o.ifacePack, o.encoding, o.tabSize,
+            o.driverClass, o.mapperClass, o.checkerClass, o.runtimeMapperClass, o.url, o.user, o.warn
+        );
+        StringBuilder buf = new StringBuilder();
+        for (Object value : values) {
+            buf.append(value).append('\n');
+        }
+        return toHex(newDigest().digest(buf.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reads cache file. If file does not exist, cannot be read or was created with different options,
+     * empty cache is returned.
+     */
+    static PreprocessCache load(Options o) {
+        String fingerprint = getFingerprint(o);
+        Map<Path, Entry> entries = new HashMap<>();
+        if (Files.exists(o.cacheFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(o.cacheFile)))) {
+                if (in.readInt() == VERSION && fingerprint.equals(in.readUTF())) {
+                    readEntries(in, entries);
+                }
+            } catch (IOException ex) {
+                entries.clear();
+            }
+        }
+        return new PreprocessCache(o.cacheFile, fingerprint, entries);
+    }
+
+    private static void readEntries(DataInput in, Map<Path, Entry> entries) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Path path = Paths.get(in.readUTF());
+            String hash = in.readUTF();
+            String ifaceHash = in.readBoolean() ? in.readUTF() : null;
+            int depCount = in.readInt();
+            Map<Path, String> dependencies = new HashMap<>(depCount);
+            for (int j = 0; j < depCount; j++) {
+                dependencies.put(Paths.get(in.readUTF()), in.readUTF());
+            }
+            int rowTypeCount = in.readInt();
+            List<CachedRowType> rowTypes = new ArrayList<>(rowTypeCount);
+            for (int j = 0; j < rowTypeCount; j++) {
+                String rowType = in.readUTF();
+                String displayEntryName = in.readUTF();
+                boolean meta = in.readBoolean();
+                int columnCount = in.readInt();
+                List<String> columnTypes = new ArrayList<>(columnCount);
+                List<String> columnNames = new ArrayList<>(columnCount);
+                for (int k = 0; k < columnCount; k++) {
+                    columnTypes.add(in.readUTF());
+                    columnNames.add(in.readUTF());
+                }
+                rowTypes.add(new CachedRowType(rowType, displayEntryName, meta, columnTypes, columnNames));
+            }
+            entries.put(path, new Entry(hash, ifaceHash, dependencies, rowTypes));
+        }
+    }
+
+    void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeInt(entries.size());
+            for (Map.Entry<Path, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey().toString());
+                out.writeUTF(entry.hash);
+                out.writeBoolean(entry.ifaceHash != null);
+                if (entry.ifaceHash != null) {
+                    out.writeUTF(entry.ifaceHash);
+                }
+                out.writeInt(entry.dependencies.size());
+                for (Map.Entry<Path, String> dep : entry.dependencies.entrySet()) {
+                    out.writeUTF(dep.getKey().toString());
+                    out.writeUTF(dep.getValue());
+                }
+                out.writeInt(entry.rowTypes.size());
+                for (CachedRowType rowType : entry.rowTypes) {
+                    out.writeUTF(rowType.rowType);
+                    out.writeUTF(rowType.displayEntryName);
+                    out.writeBoolean(rowType.meta);
+                    out.writeInt(rowType.columnTypes.size());
+                    for (int i = 0; i < rowType.columnTypes.size(); i++) {
+                        out.writeUTF(rowType.columnTypes.get(i));
+                        out.writeUTF(rowType.columnNames.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns hash of the file contents or null if file does not exist. Hashes are remembered until
+     * {@link #clearHashes()}, so each file is read only once.
+     */
+    String hash(Path path) throws IOException {
+        Path key = key(path);
+        String hash = hashes.get(key);
+        if (hash == null && !hashes.containsKey(key)) {
+            hash = Files.exists(key) ? toHex(newDigest().digest(Files.readAllBytes(key))) : null;
+            hashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Should be called after files are modified.
+     */
+    void clearHashes() {
+        hashes.clear();
+    }
+
+    /**
+     * Returns cached results for the file if it is not changed since the last run.
+     *
+     * @param iface interface generated for the file
+     */
+    Entry getUpToDate(Path path, Path iface) throws IOException {
+        Entry entry = entries.get(key(path));
+        if (entry == null)
+            return null;
+        if (!entry.hash.equals(hash(path)))
+            return null;
+        if (entry.ifaceHash != null && !entry.ifaceHash.equals(hash(iface)))
+            return null;
+        for (Map.Entry<Path, String> dep : entry.dependencies.entrySet()) {
+            if (!dep.getValue().equals(hash(dep.getKey())))
+                return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores results for the file using current hashes of the file and its dependencies.
+     *
+     * @param iface interface generated for the file or null for files which are not preprocessed
+     */
+    void put(Path path, Path iface, Collection<Path> dependencies, List<CachedRowType> rowTypes) throws IOException {
+        Path key = key(path);
+        String hash = hash(key);
+        if (hash == null) {
+            entries.remove(key);
+            return;
+        }
+        String ifaceHash = iface == null ? null : hash(iface);
+        Map<Path, String> depHashes = new HashMap<>(dependencies.size());
+        for (Path dep : dependencies) {
+            Path depKey = key(dep);
+            if (depKey.equals(key))
+                continue;
+            String depHash = hash(depKey);
+            if (depHash != null) {
+                depHashes.put(depKey, depHash);
+            }
+        }
+        entries.put(key, new Entry(hash, ifaceHash, depHashes, rowTypes));
+    }
+
+    void remove(Path path) {
+        entries.remove(key(path));
+    }
+
+    /**
+     * Removes entries for deleted files.
+     */
+    void removeDeleted() throws IOException {
+        Iterator<Path> i = entries.keySet().iterator();
+        while (i.hasNext()) {
+            if (hash(i.next()) == null) {
+                i.remove();
+            }
+        }
+    }
+}
@@ -2,6 +2,9 @@ package sqlg3.preprocess;
 
 import sqlg3.types.MetaColumn;
 
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -9,9 +12,9 @@ import java.util.function.Function;
 
 final class RowTypeInfo {
 
-    private final String displayEntryName;
-    private final List<ColumnInfo> columns;
-    private final boolean meta;
+    final String displayEntryName;
+    final List<ColumnInfo> columns;
+    final boolean meta;
 
     RowTypeInfo(String displayEntryName, List<ColumnInfo> columns, boolean meta) {
         this.displayEntryName = displayEntryName;
@@ -23,7 +26,7 @@ final class RowTypeInfo {
         return ClassUtils.getClassName(meta ? MetaColumn.class : column.type);
     }
 
-    String generateRowTypeBody(String start, String tab, Class<?> rowType) throws ParseException {
+    String generateRowTypeBody(String start, String tab, Class<?> rowType, boolean generateFetch) throws ParseException {
         if (ClassUtils.isRecord(rowType)) {
             StringBuilder buf = new StringBuilder();
             buf.append('\n');
@@ -74,10 +77,70 @@ final class RowTypeInfo {
             }
             constructor.append(start).append(tab).append("}\n");
 
-            return fields.toString() + constructor + getters + start;
+            String fetch = generateFetch ? generateFetch(start, tab, rowType) : null;
+            return fields.toString() + constructor + getters + (fetch == null ? "" : fetch) + start;
         }
     }
 
+    private static String getResultSetGetter(Class<?> type) {
+        if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+            return "getBoolean";
+        } else if (int.class.equals(type) || Integer.class.equals(type)) {
+            return "getInt";
+        } else if (long.class.equals(type) || Long.class.equals(type)) {
+            return "getLong";
+        } else if (double.class.equals(type) || Double.class.equals(type)) {
+            return "getDouble";
+        } else if (String.class.equals(type)) {
+            return "getString";
+        } else if (byte[].class.equals(type)) {
+            return "getBytes";
+        } else if (Timestamp.class.equals(type)) {
+            return "getTimestamp";
+        } else if (Date.class.equals(type)) {
+            return "getDate";
+        } else if (Time.class.equals(type)) {
+            return "getTime";
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Generates static factory method which fetches row from the result set without reflection.
+     * Only columns of types mapped by default {@link sqlg3.runtime.RuntimeMapperImpl} are supported,
+     * otherwise null is returned.
+     */
+    private String generateFetch(String start, String tab, Class<?> rowType) {
+        if (meta)
+            return null;
+        StringBuilder buf = new StringBuilder();
+        buf.append('\n');
+        buf.append(start).append(tab).append("@sqlg3.annotations.GeneratedFetch\n");
+        buf.append(start).append(tab).append("public static " + rowType.getSimpleName() + " fetch(java.sql.ResultSet rs) throws java.sql.SQLException {\n");
+        StringBuilder args = new StringBuilder();
+        for (int j = 0; j < columns.size(); j++) {
+            ColumnInfo column = columns.get(j);
+            String getter = getResultSetGetter(column.type);
+            if (getter == null)
+                return null;
+            String var = "c" + (j + 1);
+            buf.append(start).append(tab).append(tab);
+            buf.append(getColumnType(column)).append(' ').append(var).append(" = rs.").append(getter).append("(").append(j + 1).append(");\n");
+            if (unwrap(column.type) != null) {
+                buf.append(start).append(tab).append(tab).append("if (rs.wasNull())\n");
+                buf.append(start).append(tab).append(tab).append(tab).append(var).append(" = null;\n");
+            }
+            if (j > 0) {
+                args.append(", ");
+            }
+            args.append(var);
+        }
+        buf.append(start).append(tab).append(tab).append("return new " + rowType.getSimpleName() + "(" + args + ");\n");
+        buf.append(start).append(tab).append("}\n");
+        return buf.toString();
+    }
+
     private static Class<?> unwrap(Class<?> cls) {
         if (Integer.class.equals(cls)) {
             return int.class;
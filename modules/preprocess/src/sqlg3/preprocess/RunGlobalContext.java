@@ -10,9 +10,8 @@ import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 final class RunGlobalContext implements AutoCloseable {
 
@@ -25,14 +24,18 @@ final class RunGlobalContext implements AutoCloseable {
     private final String runtimeMapperClass;
     private final boolean cleanup;
     private final Path tmpDir;
-
-    final Map<Class<?>, List<RowTypeInfo>> generated = new LinkedHashMap<>();
+    private final ConnectionCache connections;
+    private final SchemaSnapshot snapshot;
 
     private GTestImpl test = null;
+    private final List<Connection> opened = new ArrayList<>();
 
     private Path workTmpDir = null;
 
-    RunGlobalContext(Options o) {
+    /**
+     * @param connections cache to take connections from or null to open new connections
+     */
+    RunGlobalContext(Options o, ConnectionCache connections) {
         this.driverClass = o.driverClass;
         this.url = o.url;
         this.user = o.user;
@@ -42,42 +45,65 @@ final class RunGlobalContext implements AutoCloseable {
         this.runtimeMapperClass = o.runtimeMapperClass;
         this.cleanup = o.cleanup;
         this.tmpDir = o.tmpDir;
+        this.connections = connections;
+        this.snapshot = o.snapshotFile == null ? null : SchemaSnapshot.load(o.snapshotFile);
     }
 
-    private static Connection openConnection(String driver, String url, String user, String pass) throws SQLException {
-        if (driver != null) {
-            try {
-                Class.forName(driver);
-            } catch (ClassNotFoundException ex) {
-                throw new SQLException(ex);
-            }
+    private Connection openConnection() throws SQLException {
+        Connection connection;
+        if (connections == null) {
+            connection = ConnectionCache.openConnection(driverClass, url, user, pass);
+        } else {
+            connection = connections.take(driverClass, url, user, pass);
         }
-        Connection conn = DriverManager.getConnection(url, user, pass);
-        try {
-            conn.setAutoCommit(false);
-        } catch (SQLException ex) {
-            try {
-                conn.close();
-            } catch (SQLException ex2) {
-                ex.addSuppressed(ex2);
-            }
-            throw ex;
+        synchronized (opened) {
+            opened.add(connection);
         }
-        return conn;
+        return connection;
     }
 
+    private GTestImpl createTest() throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException, NoSuchMethodException, InvocationTargetException {
+        Mapper mapper = (Mapper) Class.forName(mapperClass).getDeclaredConstructor().newInstance();
+        SqlChecker checker = (SqlChecker) Class.forName(checkerClass).getDeclaredConstructor().newInstance();
+        RuntimeMapper runtimeMapper = (RuntimeMapper) Class.forName(runtimeMapperClass).getDeclaredConstructor().newInstance();
+        Connection connection;
+        if (snapshot == null) {
+            connection = openConnection();
+        } else {
+            // Live connection is opened only for requests missing in the snapshot
+            connection = new SnapshotConnection(snapshot, this::openConnection).connection;
+        }
+        return new GTestImpl(connection, checker, mapper, runtimeMapper);
+    }
+
+    /**
+     * Returns test for the current thread.
+     */
     GTestImpl getTest() throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException, NoSuchMethodException, InvocationTargetException {
         if (test == null) {
-            Mapper mapper = (Mapper) Class.forName(mapperClass).getDeclaredConstructor().newInstance();
-            SqlChecker checker = (SqlChecker) Class.forName(checkerClass).getDeclaredConstructor().newInstance();
-            RuntimeMapper runtimeMapper = (RuntimeMapper) Class.forName(runtimeMapperClass).getDeclaredConstructor().newInstance();
-            Connection connection = openConnection(driverClass, url, user, pass);
-            test = new GTestImpl(connection, checker, mapper, runtimeMapper, generated);
+            test = createTest();
             GTest.setTest(test);
         }
         return test;
     }
 
+    /**
+     * Creates test with its own connection for a parallel worker. It should be set with {@link GTest#setTest}
+     * in the thread running the worker.
+     */
+    synchronized GTestImpl newWorkerTest() throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException, NoSuchMethodException, InvocationTargetException {
+        return createTest();
+    }
+
+    /**
+     * Saves database answers recorded during this run (see {@link Options#snapshotFile}).
+     */
+    void saveSnapshot() throws IOException {
+        if (snapshot != null) {
+            snapshot.save();
+        }
+    }
+
     Path getTmpDir() throws IOException {
         if (workTmpDir == null) {
             workTmpDir = Files.createTempDirectory(tmpDir, "sqlg");
@@ -88,11 +114,26 @@ final class RunGlobalContext implements AutoCloseable {
     @Override
     public void close() {
         if (test != null) {
+            // do not keep connection and compiled classes reachable from the thread
+            GTest.setTest(null);
+            test = null;
+        }
+        List<Connection> toClose;
+        synchronized (opened) {
+            toClose = new ArrayList<>(opened);
+        }
+        for (Connection connection : toClose) {
+            if (connections != null) {
+                connections.release(driverClass, url, user, pass, connection);
+                continue;
+            }
             try {
-                test.connection.close();
+                connection.close();
             } catch (SQLException ex) {
                 // ignore
             }
+        }
+        if (!toClose.isEmpty() && connections == null) {
             if (url.startsWith("jdbc:derby:")) {
                 // Special case for Derby:
                 try {
@@ -0,0 +1,191 @@
+package sqlg3.preprocess;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ParameterMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Database answers to preprocess-time requests (result set and parameter metadata of statements,
+ * database metadata used to check stored procedures), stored in a file (see {@link Options#snapshotFile}).
+ * Snapshot is used by {@link SnapshotConnection} instead of the live database.
+ */
+final class SchemaSnapshot {
+
+    enum Marker {
+        NULL
+    }
+
+    /**
+     * Error thrown by the driver for metadata request
+     */
+    static final class Failure implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String message;
+        final String sqlState;
+
+        Failure(SQLException ex) {
+            this.message = ex.getMessage();
+            this.sqlState = ex.getSQLState();
+        }
+
+        SQLException toException() {
+            return new SQLException(message, sqlState);
+        }
+    }
+
+    /**
+     * Contents of {@link ResultSetMetaData} or {@link ParameterMetaData}: values of all methods
+     * with column index parameter for each column.
+     */
+    static final class Meta implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final int count;
+        final List<Map<String, Object>> columns;
+
+        private Meta(int count, List<Map<String, Object>> columns) {
+            this.count = count;
+            this.columns = columns;
+        }
+
+        private static Meta create(Object meta, int count, Class<?> iface) throws SQLException {
+            List<Map<String, Object>> columns = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                Map<String, Object> values = new HashMap<>();
+                for (Method method : iface.getMethods()) {
+                    Class<?>[] params = method.getParameterTypes();
+                    if (params.length != 1 || params[0] != int.class)
+                        continue;
+                    Object value;
+                    try {
+                        value = method.invoke(meta, i);
+                    } catch (InvocationTargetException ex) {
+                        Throwable cause = ex.getCause();
+                        if (!(cause instanceof SQLException))
+                            continue;
+                        value = new Failure((SQLException) cause);
+                    } catch (IllegalAccessException ex) {
+                        continue;
+                    }
+                    values.put(method.getName(), value);
+                }
+                columns.add(values);
+            }
+            return new Meta(count, columns);
+        }
+
+        static Meta create(ResultSetMetaData rsmd) throws SQLException {
+            return create(rsmd, rsmd.getColumnCount(), ResultSetMetaData.class);
+        }
+
+        static Meta create(ParameterMetaData pmd) throws SQLException {
+            return create(pmd, pmd.getParameterCount(), ParameterMetaData.class);
+        }
+    }
+
+    /**
+     * Contents of result set returned by database metadata
+     */
+    static final class Table implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Meta meta;
+        final List<Object[]> rows;
+
+        Table(Meta meta, List<Object[]> rows) {
+            this.meta = meta;
+            this.rows = rows;
+        }
+
+        private static boolean isStorable(Object value) {
+            return value == null || value instanceof String || value instanceof Boolean ||
+                   value instanceof Number && value.getClass().getName().startsWith("java.");
+        }
+
+        static Table create(ResultSet rs) throws SQLException {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            int count = rsmd.getColumnCount();
+            List<Object[]> rows = new ArrayList<>();
+            while (rs.next()) {
+                Object[] row = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    Object value = rs.getObject(i + 1);
+                    row[i] = isStorable(value) ? value : value.toString();
+                }
+                rows.add(row);
+            }
+            return new Table(Meta.create(rsmd), rows);
+        }
+    }
+
+    private final Path file;
+    private final ConcurrentMap<String, Object> entries;
+    private volatile boolean modified = false;
+
+    private SchemaSnapshot(Path file, ConcurrentMap<String, Object> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads snapshot file. If file does not exist or cannot be read, empty snapshot is returned.
+     */
+    static SchemaSnapshot load(Path file) {
+        ConcurrentMap<String, Object> entries = new ConcurrentHashMap<>();
+        if (Files.exists(file)) {
+            try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+                Map<?, ?> map = (Map<?, ?>) in.readObject();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    entries.put((String) entry.getKey(), entry.getValue());
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                Options.getWarnLog().println("WARNING: cannot read schema snapshot " + file + ", it is discarded: " + ex);
+                entries.clear();
+            }
+        }
+        return new SchemaSnapshot(file, entries);
+    }
+
+    /**
+     * Saves snapshot if new entries were added.
+     */
+    void save() throws IOException {
+        if (!modified)
+            return;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))) {
+            out.writeObject(new HashMap<>(entries));
+        }
+        modified = false;
+    }
+
+    /**
+     * @return stored value ({@link Marker#NULL} for null) or null if there is no value for the key
+     */
+    Object get(String key) {
+        return entries.get(key);
+    }
+
+    void put(String key, Object value) {
+        entries.put(key, value == null ? Marker.NULL : value);
+        modified = true;
+    }
+}
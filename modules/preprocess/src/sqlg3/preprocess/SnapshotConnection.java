@@ -0,0 +1,432 @@
+package sqlg3.preprocess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Connection answering preprocess-time requests from {@link SchemaSnapshot}: statements return empty result sets
+ * with recorded metadata, database metadata returns recorded results. Requests missing in the snapshot are executed
+ * on the live connection (opened on first use) and their results are added to the snapshot.
+ */
+final class SnapshotConnection {
+
+    interface LiveConnection {
+
+        Connection open() throws SQLException;
+    }
+
+    private final SchemaSnapshot snapshot;
+    private final LiveConnection opener;
+    private Connection live = null;
+    private boolean closed = false;
+
+    final Connection connection;
+
+    SnapshotConnection(SchemaSnapshot snapshot, LiveConnection opener) {
+        this.snapshot = snapshot;
+        this.opener = opener;
+        this.connection = proxy(Connection.class, new ConnectionHandler());
+    }
+
+    /**
+     * @return live connection or null if it was not opened
+     */
+    Connection getLive() {
+        return live;
+    }
+
+    private Connection live() throws SQLException {
+        if (live == null) {
+            live = opener.open();
+        }
+        return live;
+    }
+
+    private static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+        return iface.cast(Proxy.newProxyInstance(SnapshotConnection.class.getClassLoader(), new Class<?>[] {iface}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static Object fromSnapshot(Object value) throws SQLException {
+        if (value == SchemaSnapshot.Marker.NULL)
+            return null;
+        if (value instanceof SchemaSnapshot.Failure)
+            throw ((SchemaSnapshot.Failure) value).toException();
+        return value;
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+
+        @Override
+        public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return getClass().getSimpleName();
+            default:
+                return handle(method, args == null ? new Object[0] : args);
+            }
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private final class ConnectionHandler extends Handler {
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "prepareStatement":
+            case "prepareCall":
+                if (args.length > 0 && args[0] instanceof String) {
+                    StatementHandler handler = new StatementHandler(method, args);
+                    return proxy(method.getReturnType(), handler);
+                }
+                break;
+            case "getMetaData":
+                return proxy(DatabaseMetaData.class, new DatabaseMetaDataHandler());
+            case "commit":
+            case "rollback":
+            case "setAutoCommit":
+                if (live == null && args.length <= 1)
+                    return null;
+                break;
+            case "getAutoCommit":
+                if (live == null)
+                    return false;
+                break;
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            }
+            return SnapshotConnection.invoke(live(), method, args);
+        }
+    }
+
+    private static boolean isSetter(Method method) {
+        String name = method.getName();
+        if ("clearParameters".equals(name) || "registerOutParameter".equals(name))
+            return true;
+        return name.startsWith("set") && method.getReturnType() == void.class;
+    }
+
+    private final class StatementHandler extends Handler {
+
+        private final Method prepare;
+        private final Object[] prepareArgs;
+        private final String sql;
+        private final List<Method> setters = new ArrayList<>();
+        private final List<Object[]> setterArgs = new ArrayList<>();
+        private final Map<Integer, String> params = new TreeMap<>();
+        private PreparedStatement liveStmt = null;
+        private boolean closed = false;
+
+        StatementHandler(Method prepare, Object[] prepareArgs) {
+            this.prepare = prepare;
+            this.prepareArgs = prepareArgs;
+            this.sql = (String) prepareArgs[0];
+        }
+
+        private PreparedStatement liveStmt() throws Throwable {
+            if (liveStmt == null) {
+                liveStmt = (PreparedStatement) SnapshotConnection.invoke(live(), prepare, prepareArgs);
+                for (int i = 0; i < setters.size(); i++) {
+                    SnapshotConnection.invoke(liveStmt, setters.get(i), setterArgs.get(i));
+                }
+            }
+            return liveStmt;
+        }
+
+        private String key(String kind) {
+            return kind + "\n" + sql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (isSetter(method)) {
+                if ("clearParameters".equals(name)) {
+                    params.clear();
+                }
+                if (args.length >= 2 && args[0] instanceof Integer) {
+                    params.put((Integer) args[0], name + ":" + args[1]);
+                }
+                setters.add(method);
+                setterArgs.add(args);
+                if (liveStmt != null) {
+                    SnapshotConnection.invoke(liveStmt, method, args);
+                }
+                return null;
+            }
+            if (args.length == 0) {
+                switch (name) {
+                case "executeQuery": {
+                    String key = key("Q");
+                    Object value = snapshot.get(key);
+                    if (value != null) {
+                        SchemaSnapshot.Meta meta = (SchemaSnapshot.Meta) value;
+                        return proxy(ResultSet.class, new ResultSetHandler(new SchemaSnapshot.Table(meta, new ArrayList<>())));
+                    }
+                    ResultSet rs = liveStmt().executeQuery();
+                    snapshot.put(key, SchemaSnapshot.Meta.create(rs.getMetaData()));
+                    return rs;
+                }
+                case "getMetaData": {
+                    String key = key("M");
+                    Object value = snapshot.get(key);
+                    if (value != null) {
+                        SchemaSnapshot.Meta meta = (SchemaSnapshot.Meta) fromSnapshot(value);
+                        return meta == null ? null : proxy(ResultSetMetaData.class, new MetaHandler(meta));
+                    }
+                    PreparedStatement stmt = liveStmt();
+                    ResultSetMetaData rsmd;
+                    try {
+                        rsmd = stmt.getMetaData();
+                    } catch (SQLException ex) {
+                        // driver cannot describe statement: replay the failure instead of asking again
+                        snapshot.put(key, new SchemaSnapshot.Failure(ex));
+                        throw ex;
+                    }
+                    snapshot.put(key, rsmd == null ? null : SchemaSnapshot.Meta.create(rsmd));
+                    return rsmd;
+                }
+                case "getParameterMetaData": {
+                    String key = key("P");
+                    Object value = snapshot.get(key);
+                    if (value != null) {
+                        SchemaSnapshot.Meta meta = (SchemaSnapshot.Meta) fromSnapshot(value);
+                        return meta == null ? null : proxy(ParameterMetaData.class, new MetaHandler(meta));
+                    }
+                    PreparedStatement stmt = liveStmt();
+                    ParameterMetaData pmd;
+                    try {
+                        pmd = stmt.getParameterMetaData();
+                    } catch (SQLException ex) {
+                        snapshot.put(key, new SchemaSnapshot.Failure(ex));
+                        throw ex;
+                    }
+                    snapshot.put(key, pmd == null ? null : SchemaSnapshot.Meta.create(pmd));
+                    return pmd;
+                }
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate": {
+                    String key = key(name + "\n" + params);
+                    Object value = snapshot.get(key);
+                    if (value != null)
+                        return value;
+                    Object result = SnapshotConnection.invoke(liveStmt(), method, args);
+                    snapshot.put(key, result);
+                    return result;
+                }
+                case "close":
+                    closed = true;
+                    if (liveStmt != null) {
+                        liveStmt.close();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection;
+                }
+            }
+            return SnapshotConnection.invoke(liveStmt(), method, args);
+        }
+    }
+
+    private final class DatabaseMetaDataHandler extends Handler {
+
+        private DatabaseMetaData liveMeta = null;
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getConnection".equals(name))
+                return connection;
+            Class<?> returnType = method.getReturnType();
+            boolean isTable = returnType == ResultSet.class;
+            if (!isTable && !returnType.isPrimitive() && returnType != String.class)
+                return SnapshotConnection.invoke(liveMeta(), method, args);
+            StringBuilder key = new StringBuilder("D\n").append(name);
+            for (Object arg : args) {
+                key.append('\n').append(arg instanceof Object[] ? Arrays.toString((Object[]) arg) : arg);
+            }
+            Object value = snapshot.get(key.toString());
+            if (value == null) {
+                Object result = SnapshotConnection.invoke(liveMeta(), method, args);
+                if (isTable && result != null) {
+                    try (ResultSet rs = (ResultSet) result) {
+                        value = SchemaSnapshot.Table.create(rs);
+                    }
+                } else {
+                    value = result;
+                }
+                snapshot.put(key.toString(), value);
+                if (value == null)
+                    return null;
+            }
+            Object result = fromSnapshot(value);
+            if (isTable && result != null)
+                return proxy(ResultSet.class, new ResultSetHandler((SchemaSnapshot.Table) result));
+            return result;
+        }
+
+        private DatabaseMetaData liveMeta() throws SQLException {
+            if (liveMeta == null) {
+                liveMeta = live().getMetaData();
+            }
+            return liveMeta;
+        }
+    }
+
+    private static final class MetaHandler extends Handler {
+
+        private final SchemaSnapshot.Meta meta;
+
+        MetaHandler(SchemaSnapshot.Meta meta) {
+            this.meta = meta;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getColumnCount".equals(name) || "getParameterCount".equals(name))
+                return meta.count;
+            if (args.length == 1 && args[0] instanceof Integer) {
+                int index = (Integer) args[0];
+                if (index < 1 || index > meta.count)
+                    throw new SQLException("Invalid column index: " + index);
+                Map<String, Object> values = meta.columns.get(index - 1);
+                if (values.containsKey(name))
+                    return fromSnapshot(values.get(name));
+            }
+            if ("isWrapperFor".equals(name))
+                return false;
+            throw new SQLFeatureNotSupportedException(name + " is not available in schema snapshot");
+        }
+    }
+
+    /**
+     * Read-only result set: statement results (always empty) or database metadata
+     */
+    private static final class ResultSetHandler extends Handler {
+
+        private final SchemaSnapshot.Table table;
+        private int row = -1;
+        private boolean wasNull = false;
+        private boolean closed = false;
+
+        ResultSetHandler(SchemaSnapshot.Table table) {
+            this.table = table;
+        }
+
+        private int findColumn(String label) throws SQLException {
+            for (int i = 0; i < table.meta.count; i++) {
+                Object columnLabel = table.meta.columns.get(i).get("getColumnLabel");
+                if (label.equalsIgnoreCase(String.valueOf(columnLabel)))
+                    return i + 1;
+            }
+            throw new SQLException("Column " + label + " not found");
+        }
+
+        private Object getValue(Object column) throws SQLException {
+            int index = column instanceof String ? findColumn((String) column) : (Integer) column;
+            if (row < 0 || row >= table.rows.size())
+                throw new SQLException("No current row");
+            Object[] values = table.rows.get(row);
+            if (index < 1 || index > values.length)
+                throw new SQLException("Invalid column index: " + index);
+            Object value = values[index - 1];
+            wasNull = value == null;
+            return value;
+        }
+
+        private static Object convert(Object value, Class<?> type) {
+            if (type == Object.class)
+                return value;
+            if (type == String.class)
+                return value == null ? null : value.toString();
+            if (type == boolean.class) {
+                if (value instanceof Boolean)
+                    return value;
+                if (value instanceof Number)
+                    return ((Number) value).intValue() != 0;
+                return value != null && Boolean.parseBoolean(value.toString());
+            }
+            BigDecimal number;
+            if (value == null) {
+                number = BigDecimal.ZERO;
+            } else if (value instanceof Boolean) {
+                number = (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+            } else {
+                number = new BigDecimal(value.toString());
+            }
+            if (type == int.class) {
+                return number.intValue();
+            } else if (type == short.class) {
+                return number.shortValue();
+            } else if (type == long.class) {
+                return number.longValue();
+            } else if (type == byte.class) {
+                return number.byteValue();
+            } else if (type == double.class) {
+                return number.doubleValue();
+            } else if (type == float.class) {
+                return number.floatValue();
+            } else {
+                return value == null ? null : number;
+            }
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+            case "next":
+                row++;
+                return row < table.rows.size();
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "wasNull":
+                return wasNull;
+            case "getMetaData":
+                return proxy(ResultSetMetaData.class, new MetaHandler(table.meta));
+            case "findColumn":
+                return findColumn((String) args[0]);
+            case "isWrapperFor":
+                return false;
+            }
+            if (name.startsWith("get") && args.length == 1) {
+                Class<?> type = method.getReturnType();
+                if (type.isPrimitive() || type == String.class || type == Object.class || type == BigDecimal.class)
+                    return convert(getValue(args[0]), type);
+            }
+            throw new SQLFeatureNotSupportedException(name + " is not available in schema snapshot");
+        }
+    }
+}
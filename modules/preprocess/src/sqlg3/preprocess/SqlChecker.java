@@ -22,4 +22,15 @@ public interface SqlChecker {
      * @param sql can be null
      */
     void checkSql(Connection conn, PreparedStatement stmt, String sql) throws SQLException;
+
+    /**
+     * Returns query which returns the same columns as the given query, but no rows.
+     * Used to get columns of the query when driver cannot return metadata of prepared statement
+     * ({@link PreparedStatement#getMetaData()} returns null).
+     *
+     * @return null if query should be executed as is
+     */
+    default String getNoRowsSql(String sql) {
+        return null;
+    }
 }
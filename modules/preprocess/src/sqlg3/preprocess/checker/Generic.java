@@ -148,4 +148,11 @@ public class Generic implements SqlChecker {
     public void checkSql(Connection conn, PreparedStatement stmt, String sql) throws SQLException {
         stmt.getParameterMetaData();
     }
+
+    /**
+     * Wraps query into subquery returning no rows, for databases which allow any query in <code>FROM</code>.
+     */
+    protected static String wrapNoRows(String sql) {
+        return "SELECT * FROM (" + sql + ") sqlg_no_rows WHERE 1 = 0";
+    }
 }
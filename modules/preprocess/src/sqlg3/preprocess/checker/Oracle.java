@@ -47,4 +47,9 @@ public final class Oracle extends Generic {
             return;
         checkSql(conn, sql);
     }
+
+    @Override
+    public String getNoRowsSql(String sql) {
+        return wrapNoRows(sql);
+    }
 }
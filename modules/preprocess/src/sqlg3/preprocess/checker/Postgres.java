@@ -16,4 +16,9 @@ public final class Postgres extends Generic {
     @Override
     public void checkStoredProcName(Connection conn, String procNameToCall, Parameter[] parameters) {
     }
+
+    @Override
+    public String getNoRowsSql(String sql) {
+        return wrapNoRows(sql);
+    }
 }
@@ -0,0 +1,15 @@
+package sqlg3.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks static <code>fetch(ResultSet)</code> method of row type class generated by preprocessor.
+ * Only marked methods are used by runtime to create row type instances.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface GeneratedFetch {
+}
@@ -0,0 +1,28 @@
+package sqlg3.runtime;
+
+import java.util.List;
+
+public final class BatchResult {
+
+    private final int[] rows;
+    private final List<Object[]> generatedKeys;
+
+    public BatchResult(int[] rows, List<Object[]> generatedKeys) {
+        this.rows = rows;
+        this.generatedKeys = generatedKeys;
+    }
+
+    /**
+     * Update counts for each row of the batch (as returned by {@link java.sql.Statement#executeBatch()}).
+     */
+    public int[] getRows() {
+        return rows;
+    }
+
+    /**
+     * Generated keys for each inserted row.
+     */
+    public List<Object[]> getGeneratedKeys() {
+        return generatedKeys;
+    }
+}
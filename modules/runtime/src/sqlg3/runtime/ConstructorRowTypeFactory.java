@@ -0,0 +1,150 @@
+package sqlg3.runtime;
+
+import sqlg3.types.MetaColumn;
+import sqlg3.types.SQLGException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Creates row type instances by calling its only public constructor.
+ * Type mappers and column indexes of constructor parameters are resolved once per row type
+ * (see {@link GlobalContext#clearRowTypeFactories()}).
+ */
+final class ConstructorRowTypeFactory<T> implements RowTypeFactory<T> {
+
+    private final Class<T> rowType;
+    private final boolean meta;
+    /**
+     * Null if constructor is not accessible through public lookup (for example, in modular applications
+     * row type package can be exported only to sqlg3), then {@link #reflectConstructor} is used
+     */
+    private final MethodHandle constructor;
+    private final Constructor<?> reflectConstructor;
+    /**
+     * Mappers of constructor parameters, null for meta row types
+     */
+    private final TypeMapper<?>[] mappers;
+    /**
+     * Index of the first result set column for each constructor parameter
+     */
+    private final int[] columns;
+
+    private ConstructorRowTypeFactory(Class<T> rowType, boolean meta, MethodHandle constructor, Constructor<?> reflectConstructor,
+                                      TypeMapper<?>[] mappers, int[] columns) {
+        this.rowType = rowType;
+        this.meta = meta;
+        this.constructor = constructor;
+        this.reflectConstructor = reflectConstructor;
+        this.mappers = mappers;
+        this.columns = columns;
+    }
+
+    static Constructor<?> getRowConstructor(Class<?> rowType) {
+        List<Constructor<?>> constructors = Arrays.stream(rowType.getConstructors())
+            .filter(c -> !c.isSynthetic())
+            .collect(Collectors.toList());
+        if (constructors.size() != 1)
+            throw new SQLGException("Should be only one constructor for " + rowType.getCanonicalName());
+        return constructors.get(0);
+    }
+
+    static <T> ConstructorRowTypeFactory<T> create(RuntimeMapper runtimeMappers, Class<T> rowType, boolean meta) {
+        Constructor<?> constructor = getRowConstructor(rowType);
+        Class<?>[] fieldTypes = constructor.getParameterTypes();
+        int fieldCount = fieldTypes.length;
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup()
+                .unreflectConstructor(constructor)
+                .asSpreader(Object[].class, fieldCount)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException ex) {
+            handle = null;
+        }
+        TypeMapper<?>[] mappers;
+        int[] columns = new int[fieldCount];
+        int index = 1;
+        if (meta) {
+            mappers = null;
+            for (int i = 0; i < fieldCount; i++) {
+                if (!MetaColumn.class.equals(fieldTypes[i]))
+                    throw new SQLGException("Meta row type should contain only MetaColumns in " + rowType.getCanonicalName());
+                columns[i] = index++;
+            }
+        } else {
+            mappers = new TypeMapper<?>[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                TypeMapper<?> mapper = runtimeMappers.getMapper(fieldTypes[i]);
+                mappers[i] = mapper;
+                columns[i] = index;
+                index += mapper.getResultSetColumns();
+            }
+        }
+        return new ConstructorRowTypeFactory<>(rowType, meta, handle, constructor, mappers, columns);
+    }
+
+    static void checkRowType(ResultSetMetaData rsmd, int fieldCount) throws SQLException {
+        int columnCount = rsmd.getColumnCount();
+        if (columnCount != fieldCount) {
+            throw new SQLGException(
+                "Different number of columns in query (" + columnCount + ") and constructor (" + fieldCount + ")"
+            );
+        }
+    }
+
+    private static MetaColumn fetchMeta(ResultSetMetaData rsmd, int index) throws SQLException {
+        return new MetaColumn(
+            rsmd.isNullable(index) == ResultSetMetaData.columnNoNulls,
+            rsmd.getColumnDisplaySize(index), rsmd.getPrecision(index), rsmd.getScale(index)
+        );
+    }
+
+    private T newInstance(Object[] fields) {
+        try {
+            if (constructor == null) {
+                return rowType.cast(reflectConstructor.newInstance(fields));
+            }
+            return rowType.cast(constructor.invokeExact(fields));
+        } catch (Throwable ex) {
+            throw new SQLGException("Cannot invoke row constructor for " + rowType.getCanonicalName(), ex);
+        }
+    }
+
+    @Override
+    public void check(ResultSetMetaData rsmd) throws SQLException {
+        checkRowType(rsmd, columns.length);
+    }
+
+    @Override
+    public T fetchMeta(ResultSetMetaData rsmd) throws SQLException {
+        if (!meta)
+            throw new SQLGException(rowType.getCanonicalName() + " is not a meta row type");
+        int fieldCount = columns.length;
+        Object[] fields = new Object[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = fetchMeta(rsmd, columns[i]);
+        }
+        return newInstance(fields);
+    }
+
+    @Override
+    public T fetch(ResultSet rs) throws SQLException {
+        if (meta)
+            return fetchMeta(rs.getMetaData());
+        int fieldCount = columns.length;
+        Object[] fields = new Object[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = mappers[i].fetch(rs, columns[i]);
+        }
+        return newInstance(fields);
+    }
+}
@@ -13,4 +13,16 @@ public interface DBSpecific {
      * @param sequence sequence name
      */
     String getNextIdSql(String sequence) throws SQLException;
+
+    /**
+     * Gets several next numbers from sequence in one query (see {@link IdAllocator}).
+     *
+     * @param sequence sequence name
+     * @param count number of values
+     * @return SQL returning one column with <code>count</code> rows or null if not supported
+     * (then values are fetched one by one using {@link #getNextIdSql(String)})
+     */
+    default String getNextIdsSql(String sequence, int count) throws SQLException {
+        return null;
+    }
 }
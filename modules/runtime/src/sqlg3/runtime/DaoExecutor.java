@@ -0,0 +1,156 @@
+package sqlg3.runtime;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs DAO business methods asynchronously. Each call gets its own connection from the data source,
+ * which is committed after successful call and rolled back after failure. Number of calls running at once
+ * is limited, so the database is not flooded with connections.
+ * <p>
+ * By default calls run on virtual threads when they are available (Java 21+), otherwise on a fixed pool
+ * of <code>maxConcurrency</code> threads.
+ */
+public final class DaoExecutor implements AutoCloseable {
+
+    /**
+     * DAO method call.
+     */
+    public interface DaoCall<D, R> {
+
+        R call(D dao) throws Exception;
+    }
+
+    private final GlobalContext global;
+    private final DataSource dataSource;
+    private final Semaphore permits;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    /**
+     * @param maxConcurrency maximum number of calls running at once
+     * @param executor executor to run calls
+     */
+    public DaoExecutor(GlobalContext global, DataSource dataSource, int maxConcurrency, Executor executor) {
+        this(global, dataSource, maxConcurrency, executor, null);
+    }
+
+    /**
+     * @param maxConcurrency maximum number of calls running at once
+     */
+    public DaoExecutor(GlobalContext global, DataSource dataSource, int maxConcurrency) {
+        this(global, dataSource, maxConcurrency, null, newDefaultExecutor(maxConcurrency));
+    }
+
+    private DaoExecutor(GlobalContext global, DataSource dataSource, int maxConcurrency,
+                        Executor executor, ExecutorService ownExecutor) {
+        this.global = global;
+        this.dataSource = dataSource;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.executor = executor == null ? ownExecutor : executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    private static ExecutorService newDefaultExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(maxConcurrency, r -> {
+                Thread thread = new Thread(r, "sqlg-dao-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Calls DAO method in the current thread within its own transaction.
+     * Waits if maximum number of calls are already running.
+     *
+     * @param daoClass DAO implementation class
+     * @param userObject user object passed to {@link GContext}
+     */
+    public <D, R> R call(Class<D> daoClass, Object userObject, DaoCall<D, R> call) throws Exception {
+        permits.acquire();
+        try (Connection connection = dataSource.getConnection()) {
+            // pooled connection should be returned with its original autocommit mode
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            R result;
+            try {
+                D dao = daoClass.cast(global.newDaoInstance(daoClass, connection, userObject));
+                result = call.call(dao);
+                connection.commit();
+            } catch (Throwable ex) {
+                try {
+                    connection.rollback();
+                } catch (SQLException ex2) {
+                    ex.addSuppressed(ex2);
+                }
+                if (autoCommit) {
+                    try {
+                        connection.setAutoCommit(true);
+                    } catch (SQLException ex2) {
+                        ex.addSuppressed(ex2);
+                    }
+                }
+                throw ex;
+            }
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+            return result;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Calls DAO method asynchronously within its own transaction.
+     *
+     * @param daoClass DAO implementation class
+     * @param userObject user object passed to {@link GContext}
+     * @return future completed with the method result or exception
+     */
+    public <D, R> CompletableFuture<R> submit(Class<D> daoClass, Object userObject, DaoCall<D, R> call) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone())
+                return;
+            try {
+                future.complete(call(daoClass, userObject, call));
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    public <D, R> CompletableFuture<R> submit(Class<D> daoClass, DaoCall<D, R> call) {
+        return submit(daoClass, null, call);
+    }
+
+    /**
+     * Number of calls which can be started without waiting.
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Stops default executor (executor passed to constructor is not stopped).
+     * Already submitted calls are completed.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+}
@@ -5,11 +5,11 @@ import sqlg3.types.SQLGException;
 
 import java.lang.reflect.Proxy;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Base class for all classes which are processed by preprocessor. Wraps access to JDBC methods allowing
@@ -26,9 +26,21 @@ public class GBase {
      */
     public static final String[] ALL_KEYS = new String[0];
 
-    static GTest test = null;
+    private static final ThreadLocal<GTest> TEST = new ThreadLocal<>();
+    /**
+     * True if preprocess-time test was ever set, so at application run time {@link #TEST} is never accessed
+     */
+    private static volatile boolean testing = false;
 
     private final GContext ctx;
+    /**
+     * Preprocess-time test of the thread which created this object, null at application run time
+     */
+    private final GTest test;
+    /**
+     * Statistics of the currently executing statement, null if metrics are not collected
+     */
+    private ExecutionStats stats = null;
 
     /**
      * Constructor. Usually it is called by generated wrappers.
@@ -37,13 +49,27 @@ public class GBase {
      */
     public GBase(GContext ctx) {
         this.ctx = ctx;
+        this.test = getTest();
+    }
+
+    static void setTest(GTest test) {
+        if (test != null) {
+            testing = true;
+            TEST.set(test);
+        } else {
+            TEST.remove();
+        }
+    }
+
+    static GTest getTest() {
+        return testing ? TEST.get() : null;
     }
 
     /**
      * Returns true if method is called at preprocessing time (false at application run time).
      */
     public static boolean isTesting() {
-        return test != null;
+        return getTest() != null;
     }
 
     private Connection getConnection() throws SQLException {
@@ -99,72 +125,273 @@ public class GBase {
 
     ///////////////////////////////// Statement preparation /////////////////////////////////
 
-    private interface StatementFactory<S> {
+    interface StatementFactory<S> {
 
         S create(Connection connection, String sql) throws SQLException;
     }
 
+    static final StatementFactory<PreparedStatement> PREPARE = Connection::prepareStatement;
+    static final StatementFactory<CallableStatement> CALL = Connection::prepareCall;
+
+    private static final class AutoKeysFactory implements StatementFactory<PreparedStatement> {
+
+        private final String[] autoKeys;
+
+        AutoKeysFactory(String[] autoKeys) {
+            this.autoKeys = autoKeys;
+        }
+
+        @Override
+        public PreparedStatement create(Connection connection, String sql) throws SQLException {
+            if (autoKeys.length > 0) {
+                DatabaseMetaData meta = connection.getMetaData();
+                Function<String, String> canonicalizer = QueryParser.getCanonicalizer(meta);
+                String[] autoColumns = new String[autoKeys.length];
+                for (int i = 0; i < autoKeys.length; i++) {
+                    autoColumns[i] = canonicalizer.apply(autoKeys[i]);
+                }
+                return connection.prepareStatement(sql, autoColumns);
+            } else {
+                return connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof AutoKeysFactory && Arrays.equals(autoKeys, ((AutoKeysFactory) obj).autoKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(autoKeys);
+        }
+    }
+
+    private static List<String> getTraceMessages(String sql, List<Parameter> params) {
+        List<String> messages = new ArrayList<>();
+        messages.add("Last SQL:");
+        messages.add(sql);
+        if (!params.isEmpty()) {
+            StringBuilder buf = new StringBuilder();
+            buf.append("with params (");
+            for (int i = 0; i < params.size(); i++) {
+                if (i > 0) {
+                    buf.append(", ");
+                }
+                buf.append(params.get(i));
+            }
+            buf.append(")");
+            messages.add(buf.toString());
+        }
+        return messages;
+    }
+
+    /**
+     * @param t0 start time from {@link System#nanoTime()}
+     */
+    private void trace(boolean ok, long t0, String sql, List<Parameter> params) {
+        SqlTrace trace = ctx.global.trace;
+        if (ok && !trace.isTraceSuccessful())
+            return;
+        long time = System.nanoTime() - t0;
+        trace.traceNanos(ok, time, () -> getTraceMessages(sql, params));
+    }
+
+    private static final class ExecutionStats {
+
+        final long started;
+        long bound;
+        long executed;
+        boolean executedMarked = false;
+        long rowsFetched = 0;
+        long rowsUpdated = 0;
+
+        ExecutionStats(long started) {
+            this.started = started;
+            this.bound = started;
+        }
+
+        void record(SqlMetrics metrics, String sql, boolean ok) {
+            long finished = System.nanoTime();
+            long executed = executedMarked ? this.executed : finished;
+            metrics.record(sql, ok, bound - started, executed - bound, finished - executed, rowsFetched, rowsUpdated);
+        }
+    }
+
+    private ResultSet executeQuery(PreparedStatement stmt) throws SQLException {
+        ResultSet rs = stmt.executeQuery();
+        if (stats != null) {
+            stats.executed = System.nanoTime();
+            stats.executedMarked = true;
+        }
+        return rs;
+    }
+
+    private interface MetaConsumer {
+
+        void accept(ResultSetMetaData rsmd) throws SQLException;
+    }
+
+    /**
+     * @return metadata of prepared statement or null if driver cannot return it without executing the statement
+     */
+    private static ResultSetMetaData getStatementMetaData(PreparedStatement stmt) {
+        try {
+            return stmt.getMetaData();
+        } catch (SQLException ex) {
+            // some drivers cannot describe some statements and throw generic SQLException
+            return null;
+        }
+    }
+
+    /**
+     * Gets query metadata at preprocess time without fetching rows: from the prepared statement
+     * if driver supports it, otherwise by executing query returning no rows.
+     */
+    private void testQuery(PreparedStatement stmt, QueryLike query, MetaConsumer consumer) throws SQLException {
+        ResultSetMetaData rsmd = getStatementMetaData(stmt);
+        if (rsmd != null) {
+            consumer.accept(rsmd);
+            return;
+        }
+        String noRowsSql = test.getNoRowsSql(ctx.global.parsedSqlCache.parseQuery(query.getSql()));
+        if (noRowsSql != null) {
+            ResultSetMetaData noRowsMeta = null;
+            try (PreparedStatement noRows = getConnection().prepareStatement(noRowsSql)) {
+                Parameter.setParameters(ctx.global.mappers, noRows, query.getParameters());
+                try (ResultSet rs = noRows.executeQuery()) {
+                    noRowsMeta = rs.getMetaData();
+                    consumer.accept(noRowsMeta);
+                }
+            } catch (SQLException ex) {
+                // query cannot be wrapped (for example, ends with FOR UPDATE), execute it as is
+                if (noRowsMeta != null)
+                    throw ex;
+            }
+            if (noRowsMeta != null)
+                return;
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+            consumer.accept(rs.getMetaData());
+        }
+    }
+
+    private void fetched(long rows) {
+        if (stats != null) {
+            stats.rowsFetched += rows;
+        }
+    }
+
+    private void updated(long rows) {
+        if (stats != null) {
+            stats.rowsUpdated += rows;
+        }
+    }
+
     private interface StatementExecutor<S, R> {
 
         R execute(S stmt) throws SQLException;
     }
 
-    private <S extends PreparedStatement, R> R doExecuteAnyStatement(String sql, List<Parameter> params,
+    private StatementOptions getOptions(StatementOptions options) {
+        StatementOptions globalDefaults = ctx.global.defaultOptions;
+        StatementOptions defaults = globalDefaults == null ? StatementOptions.DEFAULT : globalDefaults;
+        return options == null ? defaults : options.orElse(defaults);
+    }
+
+    private <S extends PreparedStatement, R> R execute(S stmt, List<Parameter> params, StatementOptions options, boolean reused,
+                                                       StatementExecutor<S, R> executor) throws SQLException {
+        if (test == null && (reused || !options.isEmpty())) {
+            options.apply(stmt, reused);
+        }
+        Parameter.setParameters(ctx.global.mappers, stmt, params);
+        if (stats != null) {
+            stats.bound = System.nanoTime();
+        }
+        return executor.execute(stmt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends PreparedStatement, R> R executeCached(StatementCache cache, Connection connection, String sql, List<Parameter> params,
+                                                             StatementOptions options, StatementExecutor<S, R> executor,
+                                                             StatementFactory<S> factory) throws SQLException {
+        StatementCache.Key key = new StatementCache.Key(sql, factory);
+        S stmt = (S) cache.take(key);
+        boolean reused = stmt != null;
+        if (stmt == null) {
+            stmt = factory.create(connection, sql);
+        }
+        R result;
+        try {
+            result = execute(stmt, params, options, reused, executor);
+        } catch (Throwable ex) {
+            try {
+                stmt.close();
+            } catch (SQLException ex2) {
+                ex.addSuppressed(ex2);
+            }
+            cache.checkConnection();
+            throw ex;
+        }
+        cache.release(key, stmt);
+        return result;
+    }
+
+    private <S extends PreparedStatement, R> R doExecuteAnyStatement(String sql, List<Parameter> params, StatementOptions queryOptions,
                                                                      StatementExecutor<S, R> executor, StatementFactory<S> factory) throws SQLException {
         Connection connection = getConnection();
-        long t0 = System.currentTimeMillis();
+        StatementOptions options = getOptions(queryOptions);
+        StatementCache cache = test == null ? ctx.statements : null;
+        SqlMetrics metrics = test == null ? ctx.global.metrics : null;
+        long t0 = System.nanoTime();
+        ExecutionStats outerStats = stats;
+        stats = metrics == null ? null : new ExecutionStats(t0);
         boolean ok = false;
         try {
-            try (S stmt = factory.create(connection, sql)) {
-                Parameter.setParameters(ctx.global.mappers, stmt, params);
-                R result = executor.execute(stmt);
-                ok = true;
-                return result;
+            R result;
+            if (cache != null) {
+                result = executeCached(cache, connection, sql, params, options, executor, factory);
+            } else {
+                try (S stmt = factory.create(connection, sql)) {
+                    result = execute(stmt, params, options, false, executor);
+                }
             }
+            ok = true;
+            return result;
         } finally {
-            long time = System.currentTimeMillis() - t0;
-            ctx.global.trace.trace(ok, time, () -> {
-                List<String> messages = new ArrayList<>();
-                messages.add("Last SQL:");
-                messages.add(sql);
-                if (!params.isEmpty()) {
-                    StringBuilder buf = new StringBuilder();
-                    buf.append("with params (");
-                    for (int i = 0; i < params.size(); i++) {
-                        if (i > 0) {
-                            buf.append(", ");
-                        }
-                        buf.append(params.get(i));
-                    }
-                    buf.append(")");
-                    messages.add(buf.toString());
-                }
-                return messages;
-            });
+            if (metrics != null) {
+                stats.record(metrics, sql, ok);
+            }
+            stats = outerStats;
+            trace(ok, t0, sql, params);
+        }
+    }
+
+    /**
+     * Binds numbers inserted into query text if {@link GlobalContext#bindNumbers} is on.
+     */
+    private QueryLike bindNumbers(QueryLike query) {
+        if (test == null && ctx.global.bindNumbers) {
+            return QueryBuilder.bindNumbers(query);
+        } else {
+            return query;
         }
     }
 
     private <R> R doExecuteStatement(String[] autoKeys, QueryLike query, StatementExecutor<PreparedStatement, R> executor) throws SQLException {
+        return doExecuteStatementAsIs(autoKeys, bindNumbers(query), executor);
+    }
+
+    /**
+     * Executes statement without binding numbers inserted into query text: used for batches, where parameters
+     * are bound from rows.
+     */
+    private <R> R doExecuteStatementAsIs(String[] autoKeys, QueryLike query, StatementExecutor<PreparedStatement, R> executor) throws SQLException {
         String unparsedSql = query.getSql();
         List<Parameter> params = query.getParameters();
-        String parsedSql = QueryParser.parseQuery(unparsedSql);
-        if (autoKeys == null) {
-            return doExecuteAnyStatement(parsedSql, params, executor, Connection::prepareStatement);
-        } else {
-            return doExecuteAnyStatement(parsedSql, params, executor, (connection, sql) -> {
-                if (autoKeys.length > 0) {
-                    DatabaseMetaData meta = connection.getMetaData();
-                    Function<String, String> canonicalizer = QueryParser.getCanonicalizer(meta);
-                    String[] autoColumns = new String[autoKeys.length];
-                    for (int i = 0; i < autoKeys.length; i++) {
-                        autoColumns[i] = canonicalizer.apply(autoKeys[i]);
-                    }
-                    return connection.prepareStatement(sql, autoColumns);
-                } else {
-                    return connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                }
-            });
-        }
+        String parsedSql = ctx.global.parsedSqlCache.parseQuery(unparsedSql);
+        StatementFactory<PreparedStatement> factory = autoKeys == null ? PREPARE : new AutoKeysFactory(autoKeys);
+        return doExecuteAnyStatement(parsedSql, params, query.getOptions(), executor, factory);
     }
 
     private <R> R doExecuteStatement(QueryLike query, StatementExecutor<PreparedStatement, R> executor) throws SQLException {
@@ -174,7 +401,7 @@ public class GBase {
     ///////////////////////////////// Raw PreparedStatements /////////////////////////////////
 
     public final RawStatements raw() throws SQLException {
-        return new RawStatements(getConnection());
+        return new RawStatements(getConnection(), test == null ? ctx.statements : null, test);
     }
 
     /**
@@ -200,7 +427,7 @@ public class GBase {
     }
 
     public static int executeUpdate(PreparedStatement stmt) throws SQLException {
-        if (test != null) {
+        if (getTest() != null) {
             return 0;
         } else {
             return stmt.executeUpdate();
@@ -213,6 +440,7 @@ public class GBase {
      * For internal use. Do not use this method at runtime, it throws exception when not preprocessing.
      */
     public static Parameter inP(Object value, String paramId) {
+        GTest test = getTest();
         if (test != null) {
             Class<?> cls = test.setParamType(paramId, value.getClass());
             return Parameter.in(value, cls);
@@ -242,6 +470,7 @@ public class GBase {
      * For internal use. Do not use this method at runtime, it throws exception when not preprocessing.
      */
     public static Parameter outP(Object value, String paramId) {
+        GTest test = getTest();
         if (test != null) {
             if (value == null || !value.getClass().isArray())
                 throw new SQLGException("Parameter should be an array");
@@ -266,7 +495,7 @@ public class GBase {
      *              Should be not null.
      */
     public static Parameter out(Object value) {
-        if (test != null) {
+        if (getTest() != null) {
             if (value == null || !value.getClass().isArray())
                 throw new SQLGException("Parameter should be an array");
         }
@@ -293,20 +522,39 @@ public class GBase {
             throw new SQLException("Too many rows");
     }
 
+    /**
+     * Reads single column of single row without boxing (used for primitive results).
+     */
+    private void consumeSingleRow(QueryLike query, Class<?> cls, ColumnConsumer consumer) throws SQLException {
+        doExecuteStatement(query, stmt -> {
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.checkOneColumn(rsmd, cls));
+                return null;
+            }
+            try (ResultSet rs = executeQuery(stmt)) {
+                checkNext(rs, false);
+                consumer.accept(rs);
+                tooManyRows(rs);
+                fetched(1);
+            }
+            return null;
+        });
+    }
+
     private <T> T singleOrOptionalRowQueryReturningT(Class<T> cls, QueryLike query, boolean optional) throws SQLException {
         return doExecuteStatement(query, stmt -> {
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.checkOneColumn(rsmd, cls));
+                return cls.cast(test.getTestObject(cls));
+            }
             TypeMapper<T> mapper = getMapper(cls);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (test != null) {
-                    test.checkOneColumn(rs, cls);
-                    return cls.cast(test.getTestObject(cls));
-                } else {
-                    if (!checkNext(rs, optional))
-                        return null;
-                    T ret = mapper.fetch(rs, 1);
-                    tooManyRows(rs);
-                    return ret;
-                }
+            try (ResultSet rs = executeQuery(stmt)) {
+                if (!checkNext(rs, optional))
+                    return null;
+                T ret = mapper.fetch(rs, 1);
+                tooManyRows(rs);
+                fetched(1);
+                return ret;
             }
         });
     }
@@ -328,8 +576,10 @@ public class GBase {
      * preprocess-time exception). Result is returned as a single <code>int</code>. NULLs are returned as zeroes.
      */
     public final int singleRowQueryReturningInt(QueryLike query) throws SQLException {
-        Integer value = singleRowQueryReturning(Integer.class, query);
-        return value == null ? 0 : value.intValue();
+        TypeMapper<Integer> mapper = getMapper(Integer.class);
+        int[] result = new int[1];
+        consumeSingleRow(query, Integer.class, rs -> result[0] = mapper.fetchInt(rs, 1, 0));
+        return result[0];
     }
 
     /**
@@ -338,8 +588,10 @@ public class GBase {
      * preprocess-time exception). Result is returned as a single <code>long</code>. NULLs are returned as zeroes.
      */
     public final long singleRowQueryReturningLong(QueryLike query) throws SQLException {
-        Long value = singleRowQueryReturning(Long.class, query);
-        return value == null ? 0L : value.longValue();
+        TypeMapper<Long> mapper = getMapper(Long.class);
+        long[] result = new long[1];
+        consumeSingleRow(query, Long.class, rs -> result[0] = mapper.fetchLong(rs, 1, 0L));
+        return result[0];
     }
 
     /**
@@ -348,8 +600,10 @@ public class GBase {
      * preprocess-time exception). Result is returned as a single <code>double</code>. NULLs are returned as zeroes.
      */
     public final double singleRowQueryReturningDouble(QueryLike query) throws SQLException {
-        Double value = singleRowQueryReturning(Double.class, query);
-        return value == null ? 0.0 : value.doubleValue();
+        TypeMapper<Double> mapper = getMapper(Double.class);
+        double[] result = new double[1];
+        consumeSingleRow(query, Double.class, rs -> result[0] = mapper.fetchDouble(rs, 1, 0.0));
+        return result[0];
     }
 
     /**
@@ -371,40 +625,131 @@ public class GBase {
         return doExecuteStatement(query, stmt -> {
             TypeMapper<T> mapper = getMapper(cls);
             List<T> list = new ArrayList<>();
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (test != null) {
-                    test.checkOneColumn(rs, cls);
-                } else {
-                    while (rs.next()) {
-                        list.add(mapper.fetch(rs, 1));
-                    }
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.checkOneColumn(rsmd, cls));
+                return list;
+            }
+            try (ResultSet rs = executeQuery(stmt)) {
+                while (rs.next()) {
+                    list.add(mapper.fetch(rs, 1));
                 }
+                fetched(list.size());
             }
             return list;
         });
     }
 
+    private interface ColumnConsumer {
+
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    private void consumeColumn(QueryLike query, Class<?> cls, ColumnConsumer consumer) throws SQLException {
+        doExecuteStatement(query, stmt -> {
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.checkOneColumn(rsmd, cls));
+                return null;
+            }
+            try (ResultSet rs = executeQuery(stmt)) {
+                long rows = 0;
+                while (rs.next()) {
+                    consumer.accept(rs);
+                    rows++;
+                }
+                fetched(rows);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Executes select query returning single column of <code>int</code>s without boxing.
+     *
+     * @param nullValue value to use for NULLs
+     */
+    public final int[] columnOfInt(QueryLike query, int nullValue) throws SQLException {
+        TypeMapper<Integer> mapper = getMapper(int.class);
+        PrimitiveArrays.Ints result = new PrimitiveArrays.Ints();
+        consumeColumn(query, Integer.class, rs -> result.add(mapper.fetchInt(rs, 1, nullValue)));
+        return result.toArray();
+    }
+
+    /**
+     * Executes select query returning single column of <code>int</code>s without boxing. NULLs are returned as zeroes.
+     */
+    public final int[] columnOfInt(QueryLike query) throws SQLException {
+        return columnOfInt(query, 0);
+    }
+
+    /**
+     * Executes select query returning single column of <code>long</code>s without boxing.
+     *
+     * @param nullValue value to use for NULLs
+     */
+    public final long[] columnOfLong(QueryLike query, long nullValue) throws SQLException {
+        TypeMapper<Long> mapper = getMapper(long.class);
+        PrimitiveArrays.Longs result = new PrimitiveArrays.Longs();
+        consumeColumn(query, Long.class, rs -> result.add(mapper.fetchLong(rs, 1, nullValue)));
+        return result.toArray();
+    }
+
+    /**
+     * Executes select query returning single column of <code>long</code>s without boxing. NULLs are returned as zeroes.
+     */
+    public final long[] columnOfLong(QueryLike query) throws SQLException {
+        return columnOfLong(query, 0L);
+    }
+
+    /**
+     * Executes select query returning single column of <code>double</code>s without boxing.
+     *
+     * @param nullValue value to use for NULLs (for example, {@link Double#NaN})
+     */
+    public final double[] columnOfDouble(QueryLike query, double nullValue) throws SQLException {
+        TypeMapper<Double> mapper = getMapper(double.class);
+        PrimitiveArrays.Doubles result = new PrimitiveArrays.Doubles();
+        consumeColumn(query, Double.class, rs -> result.add(mapper.fetchDouble(rs, 1, nullValue)));
+        return result.toArray();
+    }
+
+    /**
+     * Executes select query returning single column of <code>double</code>s without boxing. NULLs are returned as zeroes.
+     */
+    public final double[] columnOfDouble(QueryLike query) throws SQLException {
+        return columnOfDouble(query, 0.0);
+    }
+
     ///////////////////////////////// Class statements /////////////////////////////////
 
-    private <T> T fetchFromResultSet(Class<T> rowType, ResultSet rs, boolean meta) throws SQLException {
+    /**
+     * Returns row type factory, checking result set columns if required.
+     */
+    private <T> RowTypeFactory<T> getRowTypeFactory(Class<T> rowType, boolean meta, ResultSet rs) throws SQLException {
         RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, meta);
-        return factory.fetch(ctx.global.mappers, rs);
+        if (ctx.global.checkRowTypes) {
+            factory.check(rs.getMetaData());
+        }
+        return factory;
+    }
+
+    private <T> T fetchFromResultSet(Class<T> rowType, ResultSet rs, boolean meta) throws SQLException {
+        return getRowTypeFactory(rowType, meta, rs).fetch(rs);
     }
 
     private <T> T singleOrOptionalRowQuery(QueryLike query, boolean optional, Class<T> rowType) throws SQLException {
         return doExecuteStatement(query, stmt -> {
-            try (ResultSet rs = stmt.executeQuery()) {
-                boolean meta = false;
-                if (test != null) {
-                    test.getRowTypeFields(rowType, rs, meta);
+            boolean meta = false;
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.getRowTypeFields(rowType, rsmd, meta));
+                return null;
+            }
+            try (ResultSet rs = executeQuery(stmt)) {
+                if (!checkNext(rs, optional))
                     return null;
-                } else {
-                    if (!checkNext(rs, optional))
-                        return null;
-                    T ret = fetchFromResultSet(rowType, rs, meta);
-                    tooManyRows(rs);
-                    return ret;
-                }
+                T ret = fetchFromResultSet(rowType, rs, meta);
+                tooManyRows(rs);
+                fetched(1);
+                return ret;
             }
         });
     }
@@ -465,11 +810,14 @@ public class GBase {
         if (test != null) {
             test.getRowTypeFields(rowType, rs, meta);
         } else {
-            RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, meta);
+            RowTypeFactory<T> factory = getRowTypeFactory(rowType, meta, rs);
+            long rows = 0;
             while (rs.next()) {
-                T row = factory.fetch(ctx.global.mappers, rs);
+                T row = factory.fetch(rs);
                 consumer.accept(row);
+                rows++;
             }
+            fetched(rows);
         }
     }
 
@@ -481,13 +829,101 @@ public class GBase {
      */
     public final <T> void consumeRows(QueryLike query, Class<T> rowType, Consumer<T> consumer) throws SQLException {
         doExecuteStatement(query, stmt -> {
-            try (ResultSet rs = stmt.executeQuery()) {
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.getRowTypeFields(rowType, rsmd, false));
+                return null;
+            }
+            try (ResultSet rs = executeQuery(stmt)) {
                 consumeRows(rs, rowType, consumer);
             }
             return null;
         });
     }
 
+    /**
+     * Default fetch size for {@link #streamRows(QueryLike, Class)} when neither query nor global options define it.
+     */
+    public static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Executes select query returning rows lazily. Statement and result set stay open until the stream is closed,
+     * so the stream must be closed after use (preferably with try-with-resources).
+     * SQL is traced when the stream is closed. Note that some drivers (for example, PostgreSQL) use
+     * cursor-based fetching only when autocommit is off.
+     * <p>
+     * Errors while fetching are thrown as {@link SQLGException} with {@link SQLException} as its cause.
+     *
+     * @param query SQL statement
+     * @param rowType row type class or interface generated by preprocessor
+     * @param fetchSize JDBC fetch size hint, overrides statement options (0 to use fetch size from statement options)
+     */
+    public final <T> Stream<T> streamRows(QueryLike query, Class<T> rowType, int fetchSize) throws SQLException {
+        if (test != null) {
+            consumeRows(query, rowType, row -> {});
+            return Stream.empty();
+        }
+        QueryLike bound = bindNumbers(query);
+        List<Parameter> params = bound.getParameters();
+        String sql = ctx.global.parsedSqlCache.parseQuery(bound.getSql());
+        RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, false);
+        StatementOptions options = getOptions(bound.getOptions());
+        if (fetchSize > 0) {
+            options = options.withFetchSize(fetchSize);
+        }
+        SqlMetrics metrics = ctx.global.metrics;
+        long t0 = System.nanoTime();
+        ExecutionStats streamStats = metrics == null ? null : new ExecutionStats(t0);
+        PreparedStatement stmt = null;
+        ResultSet rs;
+        try {
+            stmt = getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            options.apply(stmt, false);
+            Parameter.setParameters(ctx.global.mappers, stmt, params);
+            if (streamStats != null) {
+                streamStats.bound = System.nanoTime();
+            }
+            rs = stmt.executeQuery();
+            if (ctx.global.checkRowTypes) {
+                factory.check(rs.getMetaData());
+            }
+        } catch (Throwable ex) {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException ex2) {
+                    ex.addSuppressed(ex2);
+                }
+            }
+            if (streamStats != null) {
+                streamStats.record(metrics, sql, false);
+            }
+            trace(false, t0, sql, params);
+            throw ex;
+        }
+        if (streamStats != null) {
+            streamStats.executed = System.nanoTime();
+            streamStats.executedMarked = true;
+        }
+        RowIterator<T> iterator = new RowIterator<>(stmt, rs, factory, (ok, rows) -> {
+            if (streamStats != null) {
+                streamStats.rowsFetched = rows;
+                streamStats.record(metrics, sql, ok);
+            }
+            trace(ok, t0, sql, params);
+        });
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Same as {@link #streamRows(QueryLike, Class, int)} with fetch size from statement options or
+     * {@link #DEFAULT_STREAM_FETCH_SIZE} if it is not set.
+     */
+    public final <T> Stream<T> streamRows(QueryLike query, Class<T> rowType) throws SQLException {
+        int fetchSize = getOptions(query.getOptions()).fetchSize;
+        return streamRows(query, rowType, fetchSize > 0 ? fetchSize : DEFAULT_STREAM_FETCH_SIZE);
+    }
+
     /**
      * Returns query ResultSet metadata as RowType object.
      */
@@ -503,23 +939,49 @@ public class GBase {
 
     /**
      * Returns query ResultSet metadata as RowType object.
+     * Query is not executed if driver can return metadata of prepared statement.
+     * Results are cached in {@link GlobalContext#metaRowCache}.
      */
     public final <T> T metaRowQuery(QueryLike query, Class<T> rowType) throws SQLException {
+        String parsedSql = ctx.global.parsedSqlCache.parseQuery(query.getSql());
+        if (test == null) {
+            T cached = ctx.global.metaRowCache.get(parsedSql, rowType);
+            if (cached != null)
+                return cached;
+        }
         return doExecuteStatement(query, stmt -> {
-            try (ResultSet rs = stmt.executeQuery()) {
-                return metaRowQuery(rs, rowType);
+            if (test != null) {
+                testQuery(stmt, query, rsmd -> test.getRowTypeFields(rowType, rsmd, true));
+                return null;
+            }
+            ResultSetMetaData rsmd = getStatementMetaData(stmt);
+            T row;
+            if (rsmd != null) {
+                RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, true);
+                if (ctx.global.checkRowTypes) {
+                    factory.check(rsmd);
+                }
+                row = factory.fetchMeta(rsmd);
+            } else {
+                try (ResultSet rs = executeQuery(stmt)) {
+                    row = metaRowQuery(rs, rowType);
+                }
             }
+            ctx.global.metaRowCache.put(parsedSql, rowType, row);
+            return row;
         });
     }
 
     ///////////////////////////////// Executing DML /////////////////////////////////
 
-    private static int doExecuteUpdate(PreparedStatement stmt, QueryLike query) throws SQLException {
+    private int doExecuteUpdate(PreparedStatement stmt, QueryLike query) throws SQLException {
         if (test != null) {
             test.checkSql(stmt, query.getSql());
             return 0;
         } else {
-            return stmt.executeUpdate();
+            int rows = stmt.executeUpdate();
+            updated(rows);
+            return rows;
         }
     }
 
@@ -547,7 +1009,15 @@ public class GBase {
     public UpdateResult executeUpdate(QueryLike query, String[] autoKeys) throws SQLException {
         return doExecuteStatement(autoKeys, query, stmt -> {
             int rows = doExecuteUpdate(stmt, query);
-            Object[] generatedKeys = getGeneratedKeys(stmt);
+            List<Object[]> generatedKeys;
+            if (test != null) {
+                Object[] keys = new Object[10];
+                Arrays.fill(keys, 0);
+                generatedKeys = Collections.singletonList(keys);
+            } else {
+                generatedKeys = new ArrayList<>();
+                readGeneratedKeys(stmt, allKeys(generatedKeys));
+            }
             return new UpdateResult(rows, generatedKeys);
         });
     }
@@ -569,23 +1039,230 @@ public class GBase {
         return executeUpdate(query, autoKeys);
     }
 
-    private static Object[] getGeneratedKeys(PreparedStatement stmt) throws SQLException {
-        if (test != null) {
-            Number[] ret = new Number[10];
-            Arrays.fill(ret, 0);
-            return ret;
-        } else {
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                ResultSetMetaData rsmd = rs.getMetaData();
-                int count = rsmd.getColumnCount();
-                rs.next();
-                Object[] ret = new Number[count];
+    /**
+     * Executes insert SQL statement (possibly inserting multiple rows, like <code>INSERT ... VALUES (...), (...)</code>)
+     * returning single generated column for each inserted row as <code>long</code>s without boxing.
+     *
+     * @param autoKey generated column name
+     */
+    public final long[] executeUpdateReturningLongKeys(QueryLike query, String autoKey) throws SQLException {
+        PrimitiveArrays.Longs keys = new PrimitiveArrays.Longs();
+        KeysReader reader = longKeys(keys);
+        doExecuteStatement(new String[] {autoKey}, query, stmt -> {
+            doExecuteUpdate(stmt, query);
+            if (test != null) {
+                keys.add(0L);
+            } else {
+                readGeneratedKeys(stmt, reader);
+            }
+            return null;
+        });
+        return keys.toArray();
+    }
+
+    /**
+     * Executes insert SQL statement (possibly inserting multiple rows, like <code>INSERT ... VALUES (...), (...)</code>)
+     * returning single generated column for each inserted row.
+     *
+     * @param cls class with user-defined mapping (see {@link RuntimeMapper})
+     * @param autoKey generated column name
+     */
+    public final <T> List<T> executeUpdateReturningKeys(Class<T> cls, QueryLike query, String autoKey) throws SQLException {
+        List<T> keys = new ArrayList<>();
+        KeysReader reader = typedKeys(cls, keys);
+        doExecuteStatement(new String[] {autoKey}, query, stmt -> {
+            doExecuteUpdate(stmt, query);
+            if (test != null) {
+                keys.add(cls.cast(test.getTestObject(cls)));
+            } else {
+                readGeneratedKeys(stmt, reader);
+            }
+            return null;
+        });
+        return keys;
+    }
+
+    private interface KeysReader {
+
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    private static void readGeneratedKeys(PreparedStatement stmt, KeysReader reader) throws SQLException {
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
+            if (rs == null)
+                return;
+            reader.read(rs);
+        }
+    }
+
+    private static int countRows(Iterable<Parameter[]> rows) {
+        int count = 0;
+        for (Parameter[] ignored : rows) {
+            count++;
+        }
+        return count;
+    }
+
+    private static KeysReader allKeys(List<Object[]> keys) {
+        return rs -> {
+            int count = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                Object[] row = new Object[count];
                 for (int i = 0; i < count; i++) {
-                    ret[i] = rs.getObject(i + 1);
+                    row[i] = rs.getObject(i + 1);
+                }
+                keys.add(row);
+            }
+        };
+    }
+
+    private KeysReader longKeys(PrimitiveArrays.Longs keys) {
+        TypeMapper<Long> mapper = getMapper(long.class);
+        return rs -> {
+            while (rs.next()) {
+                keys.add(mapper.fetchLong(rs, 1, 0L));
+            }
+        };
+    }
+
+    private <T> KeysReader typedKeys(Class<T> cls, List<T> keys) {
+        TypeMapper<T> mapper = getMapper(cls);
+        return rs -> {
+            while (rs.next()) {
+                keys.add(mapper.fetch(rs, 1));
+            }
+        };
+    }
+
+    ///////////////////////////////// Executing batches /////////////////////////////////
+
+    /**
+     * Default number of rows sent to the database in one batch by {@link #executeBatch(QueryLike, Iterable)}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private int[] doExecuteBatch(PreparedStatement stmt, QueryLike query, Iterable<Parameter[]> rows,
+                                 int batchSize, KeysReader keys) throws SQLException {
+        if (test != null) {
+            test.checkSql(stmt, query.getSql());
+            return new int[0];
+        }
+        PrimitiveArrays.Ints counts = new PrimitiveArrays.Ints();
+        int inBatch = 0;
+        for (Parameter[] row : rows) {
+            Parameter.setParameters(ctx.global.mappers, stmt, Arrays.asList(row));
+            stmt.addBatch();
+            inBatch++;
+            if (inBatch >= batchSize) {
+                counts.addAll(stmt.executeBatch());
+                if (keys != null) {
+                    readGeneratedKeys(stmt, keys);
+                }
+                inBatch = 0;
+            }
+        }
+        if (inBatch > 0) {
+            counts.addAll(stmt.executeBatch());
+            if (keys != null) {
+                readGeneratedKeys(stmt, keys);
+            }
+        }
+        int[] result = counts.toArray();
+        if (stats != null) {
+            for (int count : result) {
+                if (count > 0) {
+                    updated(count);
                 }
-                return ret;
             }
         }
+        return result;
+    }
+
+    /**
+     * Executes update/delete/insert SQL statement for multiple rows of parameters using JDBC batches.
+     * SQL text is taken from the {@code query}, its own parameters are used only at preprocess time to check the
+     * statement. At run time parameters of each row are bound in turn, and batch is sent to the database after
+     * every {@code batchSize} rows.
+     * This method should always be used instead of {@link PreparedStatement#executeBatch()} because the latter
+     * can modify database state at preprocess phase.
+     * <p>
+     * Example:
+     * <pre>
+     * List&lt;Parameter[]&gt; rows = new ArrayList&lt;&gt;();
+     * for (Item item : items) {
+     *     rows.add(new Parameter[] {in(item.id, Long.class), in(item.name, String.class)});
+     * }
+     * executeBatch(query("INSERT INTO items (id, name) VALUES (?, ?)"), rows, 500);
+     * </pre>
+     *
+     * @param query SQL statement
+     * @param rows parameters for each row
+     * @param batchSize maximum number of rows in one batch
+     * @return number of modified database rows for each row of parameters
+     */
+    public final int[] executeBatch(QueryLike query, Iterable<Parameter[]> rows, int batchSize) throws SQLException {
+        return doExecuteStatementAsIs(null, query, stmt -> doExecuteBatch(stmt, query, rows, batchSize, null));
+    }
+
+    /**
+     * Same as {@link #executeBatch(QueryLike, Iterable, int)} with batches of {@link #DEFAULT_BATCH_SIZE} rows.
+     */
+    public final int[] executeBatch(QueryLike query, Iterable<Parameter[]> rows) throws SQLException {
+        return executeBatch(query, rows, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Same as {@link #executeBatch(QueryLike, Iterable, int)}, but also retrieves generated keys.
+     * Throws {@link SQLFeatureNotSupportedException} if driver does not support retrieval of generated keys
+     * for batches.
+     *
+     * @param autoKeys generated column names
+     * @return batch result (number of modified database rows + generated keys for each row)
+     */
+    public final BatchResult executeBatch(QueryLike query, Iterable<Parameter[]> rows, int batchSize,
+                                          String[] autoKeys) throws SQLException {
+        List<Object[]> keys = new ArrayList<>();
+        KeysReader reader = allKeys(keys);
+        int[] counts = doExecuteStatementAsIs(autoKeys, query, stmt -> doExecuteBatch(stmt, query, rows, batchSize, reader));
+        return new BatchResult(counts, keys);
+    }
+
+    /**
+     * Same as {@link #executeBatch(QueryLike, Iterable, int)}, but returns single generated column
+     * for each inserted row as <code>long</code>s without boxing.
+     *
+     * @param autoKey generated column name
+     */
+    public final long[] executeBatchReturningLongKeys(QueryLike query, Iterable<Parameter[]> rows, int batchSize,
+                                                      String autoKey) throws SQLException {
+        PrimitiveArrays.Longs keys = new PrimitiveArrays.Longs();
+        KeysReader reader = longKeys(keys);
+        doExecuteStatementAsIs(new String[] {autoKey}, query, stmt -> doExecuteBatch(stmt, query, rows, batchSize, reader));
+        if (test != null) {
+            return new long[countRows(rows)];
+        }
+        return keys.toArray();
+    }
+
+    /**
+     * Same as {@link #executeBatch(QueryLike, Iterable, int)}, but returns single generated column
+     * for each inserted row.
+     *
+     * @param cls class with user-defined mapping (see {@link RuntimeMapper})
+     * @param autoKey generated column name
+     */
+    public final <T> List<T> executeBatchReturningKeys(Class<T> cls, QueryLike query, Iterable<Parameter[]> rows,
+                                                       int batchSize, String autoKey) throws SQLException {
+        List<T> keys = new ArrayList<>();
+        KeysReader reader = typedKeys(cls, keys);
+        doExecuteStatementAsIs(new String[] {autoKey}, query, stmt -> doExecuteBatch(stmt, query, rows, batchSize, reader));
+        if (test != null) {
+            int count = countRows(rows);
+            for (int i = 0; i < count; i++) {
+                keys.add(cls.cast(test.getTestObject(cls)));
+            }
+        }
+        return keys;
     }
 
     ///////////////////////////////// Executing calls /////////////////////////////////
@@ -619,17 +1296,18 @@ public class GBase {
         } else {
             String sql = getProcCallSql(name, params);
             List<Parameter> paramList = Arrays.asList(params);
-            doExecuteAnyStatement(sql, paramList, cs -> {
+            doExecuteAnyStatement(sql, paramList, null, cs -> {
                 cs.execute();
                 Parameter.getOutParameters(ctx.global.mappers, cs, paramList);
                 return null;
-            }, Connection::prepareCall);
+            }, CALL);
         }
     }
 
-    public final void callStoredProc(QueryLike query) throws SQLException {
+    public final void callStoredProc(QueryLike unboundQuery) throws SQLException {
+        QueryLike query = bindNumbers(unboundQuery);
         List<Parameter> params = query.getParameters();
-        doExecuteAnyStatement(query.getSql(), params, cs -> {
+        doExecuteAnyStatement(query.getSql(), params, query.getOptions(), cs -> {
             if (test != null) {
                 test.checkSql(cs, query.getSql());
             } else {
@@ -637,13 +1315,13 @@ public class GBase {
                 Parameter.getOutParameters(ctx.global.mappers, cs, params);
             }
             return null;
-        }, Connection::prepareCall);
+        }, CALL);
     }
 
     ///////////////////////////////// Utility methods /////////////////////////////////
 
     /**
-     * Returns next number in sequence.
+     * Returns next number in sequence. Numbers can be fetched in blocks, see {@link IdAllocator}.
      *
      * @param sequence sequence name
      */
@@ -654,11 +1332,25 @@ public class GBase {
                 test.checkSql(stmt, sql);
             }
             return 0;
+        } else if (ctx.global.ids.isPooled(sequence)) {
+            return ctx.global.ids.next(sequence, this::fetchNextIds);
         } else {
             return singleRowQueryReturningLong(query(sql));
         }
     }
 
+    private long[] fetchNextIds(String sequence, int count) throws SQLException {
+        String sql = count > 1 ? ctx.global.db.getNextIdsSql(sequence, count) : null;
+        if (sql != null)
+            return columnOfLong(query(sql));
+        String oneSql = ctx.global.db.getNextIdSql(sequence);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = singleRowQueryReturningLong(query(oneSql));
+        }
+        return ids;
+    }
+
     private <T> TypeMapper<T> getMapper(Class<T> cls) {
         return ctx.global.mappers.getMapper(cls);
     }
@@ -7,11 +7,23 @@ public final class GContext {
     final GlobalContext global;
     private final Object userObject;
     final Connection connection;
+    final StatementCache statements;
 
     public GContext(GlobalContext global, Object userObject, Connection connection) {
         this.global = global;
         this.userObject = userObject;
         this.connection = connection;
+        this.statements = null;
+    }
+
+    /**
+     * Context which reuses prepared statements of the cache connection.
+     */
+    public GContext(GlobalContext global, Object userObject, StatementCache statements) {
+        this.global = global;
+        this.userObject = userObject;
+        this.connection = statements.getConnection();
+        this.statements = statements;
     }
 
     public GlobalContext getGlobal() {
@@ -3,12 +3,17 @@ package sqlg3.runtime;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 public abstract class GTest {
 
+    /**
+     * Sets preprocess-time test for the current thread (null to reset it).
+     * {@link GBase} objects created in this thread use this test.
+     */
     public static void setTest(GTest test) {
-        GBase.test = test;
+        GBase.setTest(test);
     }
 
     public static GContext testContext(Connection connection, DBSpecific specific, RuntimeMapper mappers) {
@@ -19,9 +24,25 @@ public abstract class GTest {
 
     public abstract Object getTestObject(Class<?> paramType);
 
-    public abstract void getRowTypeFields(Class<?> rowType, ResultSet rs, boolean meta) throws SQLException;
+    public abstract void getRowTypeFields(Class<?> rowType, ResultSetMetaData rsmd, boolean meta) throws SQLException;
 
-    public abstract void checkOneColumn(ResultSet rs, Class<?> cls) throws SQLException;
+    public final void getRowTypeFields(Class<?> rowType, ResultSet rs, boolean meta) throws SQLException {
+        getRowTypeFields(rowType, rs.getMetaData(), meta);
+    }
+
+    public abstract void checkOneColumn(ResultSetMetaData rsmd, Class<?> cls) throws SQLException;
+
+    public final void checkOneColumn(ResultSet rs, Class<?> cls) throws SQLException {
+        checkOneColumn(rs.getMetaData(), cls);
+    }
+
+    /**
+     * Returns query which returns the same columns as the given query, but no rows.
+     * Used to get query metadata when driver cannot return it without executing the query.
+     *
+     * @return null if query should be executed as is
+     */
+    public abstract String getNoRowsSql(String sql);
 
     public abstract void checkSql(PreparedStatement stmt, String sql) throws SQLException;
 
@@ -0,0 +1,78 @@
+package sqlg3.runtime;
+
+import sqlg3.annotations.GeneratedFetch;
+import sqlg3.types.SQLGException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Creates row type instances by calling static {@code fetch(ResultSet)} method generated by preprocessor
+ * for row type classes (marked with {@link GeneratedFetch}).
+ */
+final class GeneratedRowTypeFactory<T> implements RowTypeFactory<T> {
+
+    private final Class<T> rowType;
+    private final int fieldCount;
+    private final MethodHandle fetch;
+
+    private GeneratedRowTypeFactory(Class<T> rowType, int fieldCount, MethodHandle fetch) {
+        this.rowType = rowType;
+        this.fieldCount = fieldCount;
+        this.fetch = fetch;
+    }
+
+    /**
+     * @return null if row type does not have generated fetch method or if mappers of its fields were overridden
+     * (generated method reads values with JDBC getters of default mappers)
+     */
+    static <T> GeneratedRowTypeFactory<T> create(RuntimeMapperImpl mappers, Class<T> rowType) {
+        Method method;
+        try {
+            method = rowType.getMethod("fetch", ResultSet.class);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+        if (!method.isAnnotationPresent(GeneratedFetch.class))
+            return null;
+        if (!Modifier.isStatic(method.getModifiers()) || !rowType.equals(method.getReturnType()))
+            return null;
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup()
+                .unreflect(method)
+                .asType(MethodType.methodType(Object.class, ResultSet.class));
+        } catch (IllegalAccessException ex) {
+            return null;
+        }
+        Class<?>[] fieldTypes = ConstructorRowTypeFactory.getRowConstructor(rowType).getParameterTypes();
+        for (Class<?> fieldType : fieldTypes) {
+            if (!mappers.isBuiltIn(fieldType))
+                return null;
+        }
+        int fieldCount = fieldTypes.length;
+        return new GeneratedRowTypeFactory<>(rowType, fieldCount, handle);
+    }
+
+    @Override
+    public void check(ResultSetMetaData rsmd) throws SQLException {
+        ConstructorRowTypeFactory.checkRowType(rsmd, fieldCount);
+    }
+
+    @Override
+    public T fetch(ResultSet rs) throws SQLException {
+        try {
+            return rowType.cast(fetch.invokeExact(rs));
+        } catch (SQLException | RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new SQLGException("Cannot fetch row for " + rowType.getCanonicalName(), ex);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package sqlg3.runtime;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of sequence values used by {@link GBase#getNextId(String)}. Instead of querying the database for each id,
+ * values are fetched in blocks in one round trip (see {@link DBSpecific#getNextIdsSql(String, int)}) and then
+ * handed out without locking. Sequences created with <code>INCREMENT BY n</code> can be registered with
+ * {@link #setIncrement(String, int)}: then each sequence value reserves <code>n</code> ids.
+ * <p>
+ * Ids are not pooled by default. Unused ids of the pool are lost when application stops, so there can be
+ * gaps in the ids.
+ */
+public final class IdAllocator {
+
+    interface Fetcher {
+
+        /**
+         * Fetches next <code>count</code> values of the sequence from the database.
+         */
+        long[] fetch(String sequence, int count) throws SQLException;
+    }
+
+    private static final class Block {
+
+        final long[] ids;
+        final AtomicInteger next = new AtomicInteger();
+
+        Block(long[] ids) {
+            this.ids = ids;
+        }
+    }
+
+    private static final class SequenceIds {
+
+        volatile Block block = new Block(new long[0]);
+        /**
+         * Guards refill of {@link #block}. Not <code>synchronized</code>, so virtual threads
+         * waiting for database round trip do not pin their carrier threads.
+         */
+        final ReentrantLock lock = new ReentrantLock();
+    }
+
+    /**
+     * Number of ids fetched at once for sequences without explicit block size.
+     * 1 means that ids are not pooled.
+     */
+    public volatile int defaultBlockSize = 1;
+
+    private final ConcurrentMap<String, Integer> blockSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> increments = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SequenceIds> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Sets number of ids fetched at once for the sequence.
+     */
+    public void setBlockSize(String sequence, int blockSize) {
+        blockSizes.put(sequence, blockSize);
+    }
+
+    /**
+     * Registers sequence created with <code>INCREMENT BY increment</code>: each its value <code>v</code>
+     * reserves ids from <code>v</code> to <code>v + increment - 1</code>.
+     */
+    public void setIncrement(String sequence, int increment) {
+        increments.put(sequence, increment);
+    }
+
+    private int getBlockSize(String sequence) {
+        return Math.max(blockSizes.getOrDefault(sequence, defaultBlockSize), 1);
+    }
+
+    private int getIncrement(String sequence) {
+        return Math.max(increments.getOrDefault(sequence, 1), 1);
+    }
+
+    /**
+     * @return true if ids of the sequence are pooled
+     */
+    public boolean isPooled(String sequence) {
+        return getBlockSize(sequence) > 1 || getIncrement(sequence) > 1;
+    }
+
+    /**
+     * Discards all pooled ids.
+     */
+    public void clear() {
+        sequences.clear();
+    }
+
+    private long[] fetchBlock(String sequence, Fetcher fetcher) throws SQLException {
+        int increment = getIncrement(sequence);
+        int count = (getBlockSize(sequence) + increment - 1) / increment;
+        long[] values = fetcher.fetch(sequence, count);
+        if (values.length == 0)
+            throw new SQLException("No values returned for sequence " + sequence);
+        if (increment == 1)
+            return values;
+        long[] ids = new long[values.length * increment];
+        int k = 0;
+        for (long value : values) {
+            for (int i = 0; i < increment; i++) {
+                ids[k++] = value + i;
+            }
+        }
+        return ids;
+    }
+
+    long next(String sequence, Fetcher fetcher) throws SQLException {
+        SequenceIds seq = sequences.computeIfAbsent(sequence, k -> new SequenceIds());
+        while (true) {
+            Block block = seq.block;
+            int index = block.next.getAndIncrement();
+            if (index < block.ids.length)
+                return block.ids[index];
+            seq.lock.lock();
+            try {
+                if (seq.block == block) {
+                    seq.block = new Block(fetchBlock(sequence, fetcher));
+                }
+            } finally {
+                seq.lock.unlock();
+            }
+        }
+    }
+}
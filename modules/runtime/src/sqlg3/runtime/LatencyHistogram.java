@@ -0,0 +1,92 @@
+package sqlg3.runtime;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Concurrent histogram of non-negative values with logarithmic buckets: each power of two is divided into
+ * {@link #SUB_BUCKETS} linear sub-buckets, so relative error of percentiles is below 1/{@link #SUB_BUCKETS}.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Values greater than 2^MAX_BITS (about 18 minutes for nanoseconds) fall into the last bucket
+     */
+    private static final int MAX_BITS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_BITS - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) Math.max(value, 0);
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits > MAX_BITS)
+            return (MAX_BITS - SUB_BUCKET_BITS + 2) * SUB_BUCKETS - 1;
+        int shift = bits - SUB_BUCKET_BITS - 1;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the highest value of the bucket.
+     */
+    static long bucketValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    void record(long value) {
+        counts.incrementAndGet(bucket(value));
+        max.accumulate(value);
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns bucket counts.
+     */
+    long[] snapshot() {
+        long[] result = new long[counts.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns approximate value at the given percentile of snapshot.
+     *
+     * @param percentile from 0 to 100
+     */
+    static long percentile(long[] snapshot, double percentile) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max((long) Math.ceil(total * percentile / 100.0), 1);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return bucketValue(i);
+        }
+        return bucketValue(snapshot.length - 1);
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.reset();
+    }
+}
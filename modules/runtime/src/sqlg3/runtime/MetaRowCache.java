@@ -0,0 +1,90 @@
+package sqlg3.runtime;
+
+import sqlg3.runtime.queries.QueryParser;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded concurrent cache of meta rows returned by {@link GBase#metaRowQuery(QueryLike, Class)},
+ * keyed by the parsed SQL text and row type. When the cache is full arbitrary entries are evicted.
+ * Setting maximum size to zero disables caching.
+ * <p>
+ * Cached rows become stale when the database schema changes, so after DDL the cache should be invalidated
+ * with {@link #invalidate(String)} or {@link #clear()}.
+ */
+public final class MetaRowCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final ConcurrentMap<List<Object>, Object> cache = new ConcurrentHashMap<>();
+    private volatile int maxSize;
+
+    MetaRowCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static List<Object> key(String parsedSql, Class<?> rowType) {
+        return Arrays.asList(parsedSql, rowType);
+    }
+
+    <T> T get(String parsedSql, Class<T> rowType) {
+        if (maxSize <= 0)
+            return null;
+        return rowType.cast(cache.get(key(parsedSql, rowType)));
+    }
+
+    void put(String parsedSql, Class<?> rowType, Object row) {
+        int maxSize = this.maxSize;
+        if (maxSize <= 0 || row == null)
+            return;
+        if (cache.put(key(parsedSql, rowType), row) == null) {
+            evict(maxSize);
+        }
+    }
+
+    private void evict(int maxSize) {
+        int excess = cache.size() - maxSize;
+        if (excess <= 0)
+            return;
+        Iterator<List<Object>> i = cache.keySet().iterator();
+        while (excess > 0 && i.hasNext()) {
+            i.next();
+            i.remove();
+            excess--;
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize maximum number of cached rows (0 to disable caching)
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict(Math.max(maxSize, 0));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes cached rows of the query.
+     *
+     * @param sql query text (as passed to {@link GBase#metaRowQuery(QueryLike, Class)})
+     */
+    public void invalidate(String sql) {
+        String parsedSql = QueryParser.parseQuery(sql);
+        cache.keySet().removeIf(key -> parsedSql.equals(key.get(0)));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -22,6 +22,10 @@ public final class Parameter {
     private final Object outputValue;
     private final boolean output;
     private final Class<Object> cls;
+    /**
+     * Mapper used to register OUT parameter, it is reused to read the output value
+     */
+    private TypeMapper<Object> outMapper = null;
 
     @SuppressWarnings("unchecked")
     private Parameter(Object inputValue, boolean input,
@@ -100,6 +104,7 @@ public final class Parameter {
         if (isOut()) {
             if (st instanceof CallableStatement) {
                 mapper.register((CallableStatement) st, index);
+                outMapper = mapper;
             } else {
                 throw new SQLGException("You can pass OUT parameter only to CallableStatement");
             }
@@ -138,7 +143,7 @@ public final class Parameter {
             return;
         int index = 1;
         for (Parameter param : params) {
-            TypeMapper<Object> mapper = param.getMapper(mappers);
+            TypeMapper<Object> mapper = param.outMapper != null ? param.outMapper : param.getMapper(mappers);
             if (param.isOut()) {
                 Object value = mapper.get(cs, index);
                 if (param.outputValue != null) {
@@ -0,0 +1,130 @@
+package sqlg3.runtime;
+
+import sqlg3.runtime.queries.QueryParser;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded concurrent cache of parsed SQL statements (see {@link QueryParser#parseQuery}),
+ * keyed by the raw SQL text. When the cache is full arbitrary entries are evicted (it is not an LRU cache).
+ * Setting maximum size to zero disables caching.
+ */
+public final class ParsedSqlCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    /**
+     * Maximum number of distinct statements counted by {@link #getDistinctStatements()}
+     */
+    public static final int MAX_DISTINCT_STATEMENTS = 100_000;
+
+    private final ConcurrentMap<String, String> cache = new ConcurrentHashMap<>();
+    private volatile int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Set<Long> distinct = ConcurrentHashMap.newKeySet();
+
+    ParsedSqlCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static long hash(String sql) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < sql.length(); i++) {
+            hash = (hash ^ sql.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void miss(String sql) {
+        misses.increment();
+        if (distinct.size() < MAX_DISTINCT_STATEMENTS) {
+            distinct.add(hash(sql));
+        }
+    }
+
+    String parseQuery(String sql) {
+        int maxSize = this.maxSize;
+        if (maxSize <= 0) {
+            miss(sql);
+            return QueryParser.parseQuery(sql);
+        }
+        String parsed = cache.get(sql);
+        if (parsed != null) {
+            hits.increment();
+            return parsed;
+        }
+        miss(sql);
+        parsed = QueryParser.parseQuery(sql);
+        if (cache.putIfAbsent(sql, parsed) == null) {
+            evict(maxSize);
+        }
+        return parsed;
+    }
+
+    private void evict(int maxSize) {
+        int excess = cache.size() - maxSize;
+        if (excess <= 0)
+            return;
+        Iterator<String> i = cache.keySet().iterator();
+        while (excess > 0 && i.hasNext()) {
+            i.next();
+            i.remove();
+            evictions.increment();
+            excess--;
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize maximum number of cached statements (0 to disable caching)
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict(Math.max(maxSize, 0));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of distinct statement texts executed since creation or {@link #clear()}
+     * (not more than {@link #MAX_DISTINCT_STATEMENTS}). Can be used to measure how many different statements
+     * database has to parse, for example, to see the effect of {@link GlobalContext#bindNumbers}.
+     * Texts are counted on cache misses, so statements evicted from the cache and parsed again are not counted twice.
+     */
+    public int getDistinctStatements() {
+        return distinct.size();
+    }
+
+    public void clear() {
+        cache.clear();
+        distinct.clear();
+    }
+
+    public String toString() {
+        return "size " + size() + ", hits " + getHits() + ", misses " + getMisses() + ", evictions " + getEvictions() +
+               ", distinct statements " + getDistinctStatements();
+    }
+}
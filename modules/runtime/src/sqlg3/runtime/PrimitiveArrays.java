@@ -0,0 +1,75 @@
+package sqlg3.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Growable arrays of primitives.
+ */
+final class PrimitiveArrays {
+
+    private PrimitiveArrays() {
+    }
+
+    private static int grow(int length, int required) {
+        return Math.max(length * 2, required);
+    }
+
+    static final class Ints {
+
+        private int[] array = new int[16];
+        private int size = 0;
+
+        void add(int value) {
+            if (size >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, size + 1));
+            }
+            array[size++] = value;
+        }
+
+        void addAll(int[] values) {
+            if (size + values.length > array.length) {
+                array = Arrays.copyOf(array, grow(array.length, size + values.length));
+            }
+            System.arraycopy(values, 0, array, size, values.length);
+            size += values.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(array, size);
+        }
+    }
+
+    static final class Longs {
+
+        private long[] array = new long[16];
+        private int size = 0;
+
+        void add(long value) {
+            if (size >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, size + 1));
+            }
+            array[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(array, size);
+        }
+    }
+
+    static final class Doubles {
+
+        private double[] array = new double[16];
+        private int size = 0;
+
+        void add(double value) {
+            if (size >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, size + 1));
+            }
+            array[size++] = value;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(array, size);
+        }
+    }
+}
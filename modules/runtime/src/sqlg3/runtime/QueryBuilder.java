@@ -9,8 +9,36 @@ import java.util.List;
  */
 public final class QueryBuilder implements QueryLike {
 
+    /**
+     * Number inserted into SQL text by {@link #appendLit(Number)}, which can be replaced with parameter
+     * at execution time (see {@link GlobalContext#bindNumbers}).
+     */
+    static final class NumberLiteral {
+
+        final int start;
+        final int end;
+        /**
+         * Number of query parameters preceding the literal
+         */
+        final int paramIndex;
+        final Number value;
+
+        NumberLiteral(int start, int end, int paramIndex, Number value) {
+            this.start = start;
+            this.end = end;
+            this.paramIndex = paramIndex;
+            this.value = value;
+        }
+
+        NumberLiteral shift(int offset, int params) {
+            return new NumberLiteral(start + offset, end + offset, paramIndex + params, value);
+        }
+    }
+
     private final StringBuilder sql;
     private final List<Parameter> data;
+    private StatementOptions options = null;
+    private List<NumberLiteral> numbers = null;
 
     public QueryBuilder() {
         this("");
@@ -30,6 +58,8 @@ public final class QueryBuilder implements QueryLike {
     public QueryBuilder(QueryLike piece) {
         this.sql = new StringBuilder(piece.getSqlChars());
         this.data = new ArrayList<>(piece.getParameters());
+        this.options = piece.getOptions();
+        addNumbers(getNumbers(piece), 0, 0);
     }
 
     @Override
@@ -47,16 +77,42 @@ public final class QueryBuilder implements QueryLike {
         return data;
     }
 
-    private void append(CharSequence sql, List<Parameter> data, boolean breakLine) {
+    @Override
+    public StatementOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Sets statement execution options.
+     */
+    public QueryBuilder setOptions(StatementOptions options) {
+        this.options = options;
+        return this;
+    }
+
+    private void addNumbers(List<NumberLiteral> numbers, int offset, int params) {
+        if (numbers == null || numbers.isEmpty())
+            return;
+        if (this.numbers == null) {
+            this.numbers = new ArrayList<>(numbers.size());
+        }
+        for (NumberLiteral number : numbers) {
+            this.numbers.add(number.shift(offset, params));
+        }
+    }
+
+    private void append(CharSequence sql, List<Parameter> data, List<NumberLiteral> numbers, boolean breakLine) {
+        int params = this.data.size();
         append(this.sql, sql, breakLine);
         this.data.addAll(data);
+        addNumbers(numbers, this.sql.length() - sql.length(), params);
     }
 
     /**
      * Same as {@link #append(QueryLike)}
      */
     public QueryBuilder append(CharSequence sql, Parameter... params) {
-        append(sql, Arrays.asList(params), true);
+        append(sql, Arrays.asList(params), null, true);
         return this;
     }
 
@@ -66,7 +122,7 @@ public final class QueryBuilder implements QueryLike {
      */
     public QueryBuilder append(QueryLike that) {
         if (that != null) {
-            append(that.getSqlChars(), that.getParameters(), true);
+            append(that.getSqlChars(), that.getParameters(), getNumbers(that), true);
         }
         return this;
     }
@@ -75,16 +131,27 @@ public final class QueryBuilder implements QueryLike {
      * Same as {@link #appendLit(QueryLike)}
      */
     public QueryBuilder appendLit(CharSequence sql, Parameter... params) {
-        append(sql, Arrays.asList(params), false);
+        append(sql, Arrays.asList(params), null, false);
         return this;
     }
 
     /**
      * Appends numeric query piece.
      * Nothing is inserted between pieces. Usually used by preprocessor-generated code.
+     * <p>
+     * <code>Integer</code>, <code>Long</code> and <code>Double</code> values are bound as parameters
+     * at execution time if {@link GlobalContext#bindNumbers} is on.
      */
     public QueryBuilder appendLit(Number sql) {
-        return appendLit(sql.toString());
+        int start = this.sql.length();
+        this.sql.append(sql);
+        if (sql instanceof Integer || sql instanceof Long || sql instanceof Double) {
+            if (numbers == null) {
+                numbers = new ArrayList<>(1);
+            }
+            numbers.add(new NumberLiteral(start, this.sql.length(), data.size(), sql));
+        }
+        return this;
     }
 
     /**
@@ -93,7 +160,7 @@ public final class QueryBuilder implements QueryLike {
      */
     public QueryBuilder appendLit(QueryLike that) {
         if (that != null) {
-            append(that.getSqlChars(), that.getParameters(), false);
+            append(that.getSqlChars(), that.getParameters(), getNumbers(that), false);
         }
         return this;
     }
@@ -135,7 +202,44 @@ public final class QueryBuilder implements QueryLike {
      * Returns built query
      */
     public QueryPiece toQuery() {
-        return new QueryPiece(sql, data.toArray(new Parameter[0]));
+        return new QueryPiece(sql, data.toArray(new Parameter[0]), options, numbers == null ? null : new ArrayList<>(numbers));
+    }
+
+    static List<NumberLiteral> getNumbers(QueryLike query) {
+        if (query instanceof QueryBuilder) {
+            return ((QueryBuilder) query).numbers;
+        } else if (query instanceof QueryPiece) {
+            return ((QueryPiece) query).numbers;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces numbers appended by {@link #appendLit(Number)} with parameters.
+     *
+     * @return the same query if it has no such numbers
+     */
+    static QueryLike bindNumbers(QueryLike query) {
+        List<NumberLiteral> numbers = getNumbers(query);
+        if (numbers == null || numbers.isEmpty())
+            return query;
+        CharSequence sql = query.getSqlChars();
+        List<Parameter> params = query.getParameters();
+        StringBuilder buf = new StringBuilder(sql.length());
+        List<Parameter> data = new ArrayList<>(params.size() + numbers.size());
+        int pos = 0;
+        int param = 0;
+        for (NumberLiteral number : numbers) {
+            buf.append(sql, pos, number.start).append('?');
+            pos = number.end;
+            data.addAll(params.subList(param, number.paramIndex));
+            param = number.paramIndex;
+            data.add(Parameter.in(number.value, number.value.getClass()));
+        }
+        buf.append(sql, pos, sql.length());
+        data.addAll(params.subList(param, params.size()));
+        return new QueryPiece(buf, data.toArray(new Parameter[0]), query.getOptions());
     }
 
     public String toString() {
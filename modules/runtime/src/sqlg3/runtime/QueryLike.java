@@ -9,4 +9,11 @@ public interface QueryLike {
     String getSql();
 
     List<Parameter> getParameters();
+
+    /**
+     * Statement execution options, null if not set.
+     */
+    default StatementOptions getOptions() {
+        return null;
+    }
 }
@@ -10,6 +10,8 @@ public final class QueryPiece implements QueryLike {
 
     public final String sql;
     public final Parameter[] data;
+    public final StatementOptions options;
+    final List<QueryBuilder.NumberLiteral> numbers;
 
     /**
      * Constructor.
@@ -18,8 +20,25 @@ public final class QueryPiece implements QueryLike {
      * @param data parameters (not null)
      */
     public QueryPiece(CharSequence sql, Parameter[] data) {
+        this(sql, data, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sql SQL text
+     * @param data parameters (not null)
+     * @param options statement execution options (can be null)
+     */
+    public QueryPiece(CharSequence sql, Parameter[] data, StatementOptions options) {
+        this(sql, data, options, null);
+    }
+
+    QueryPiece(CharSequence sql, Parameter[] data, StatementOptions options, List<QueryBuilder.NumberLiteral> numbers) {
         this.sql = sql.toString();
         this.data = data;
+        this.options = options;
+        this.numbers = numbers;
     }
 
     @Override
@@ -37,6 +56,18 @@ public final class QueryPiece implements QueryLike {
         return Arrays.asList(data);
     }
 
+    @Override
+    public StatementOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Returns the same query with statement execution options.
+     */
+    public QueryPiece withOptions(StatementOptions options) {
+        return new QueryPiece(sql, data, options, numbers);
+    }
+
     /**
      * Concatenation of query pieces. Parameter <code>that</code> can contain nulls (they are ignored).
      * Line break is inserted between pieces.
@@ -53,7 +84,7 @@ public final class QueryPiece implements QueryLike {
      * Concatenation of query piece and string. Line break is inserted between them.
      */
     public QueryPiece add(CharSequence sql) {
-        return new QueryPiece(QueryBuilder.add(this.sql, sql, true), data);
+        return new QueryPiece(QueryBuilder.add(this.sql, sql, true), data, options, numbers);
     }
 
     public String toString() {
@@ -10,31 +10,69 @@ import java.util.List;
 public final class RawStatements implements AutoCloseable {
 
     private final Connection connection;
+    private final StatementCache cache;
+    private final GTest test;
     private final List<PreparedStatement> toClose = new ArrayList<>();
+    private final List<StatementCache.Key> keys = new ArrayList<>();
 
-    RawStatements(Connection connection) {
+    RawStatements(Connection connection, StatementCache cache, GTest test) {
         this.connection = connection;
+        this.cache = cache;
+        this.test = test;
     }
 
-    public PreparedStatement prepareStatement(String sql) throws SQLException {
-        PreparedStatement stmt = connection.prepareStatement(sql);
+    private <S extends PreparedStatement> S prepare(String sql, GBase.StatementFactory<S> factory) throws SQLException {
+        StatementCache.Key key;
+        S stmt;
+        if (cache != null) {
+            key = new StatementCache.Key(sql, factory);
+            @SuppressWarnings("unchecked")
+            S cached = (S) cache.take(key);
+            if (cached != null) {
+                // statement could be modified by the previous user
+                try {
+                    StatementOptions.DEFAULT.apply(cached, true);
+                    cached.clearBatch();
+                } catch (SQLException ex) {
+                    cached.close();
+                    cached = null;
+                }
+            }
+            stmt = cached;
+        } else {
+            key = null;
+            stmt = null;
+        }
+        if (stmt == null) {
+            stmt = factory.create(connection, sql);
+        }
         toClose.add(stmt);
-        if (GBase.test != null) {
-            GBase.test.checkSql(stmt, sql);
+        keys.add(key);
+        return stmt;
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement stmt = prepare(sql, GBase.PREPARE);
+        if (test != null) {
+            test.checkSql(stmt, sql);
         }
         return stmt;
     }
 
     public CallableStatement prepareCall(String sql) throws SQLException {
-        CallableStatement stmt = connection.prepareCall(sql);
-        toClose.add(stmt);
-        return stmt;
+        return prepare(sql, GBase.CALL);
     }
 
     @Override
     public void close() throws SQLException {
         SQLException error = null;
-        for (PreparedStatement stmt : toClose) {
+        for (int i = 0; i < toClose.size(); i++) {
+            PreparedStatement stmt = toClose.get(i);
+            StatementCache.Key key = keys.get(i);
+            if (key != null) {
+                cache.release(key, stmt);
+                continue;
+            }
             try {
                 stmt.close();
             } catch (SQLException ex) {
@@ -0,0 +1,103 @@
+package sqlg3.runtime;
+
+import sqlg3.types.SQLGException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over open result set, see {@link GBase#streamRows}.
+ * Statement and result set are kept open until {@link #close} is called.
+ */
+final class RowIterator<T> implements Iterator<T> {
+
+    interface CloseListener {
+
+        void closed(boolean ok, long rows);
+    }
+
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowTypeFactory<T> factory;
+    private final CloseListener listener;
+
+    private Boolean hasNext = null;
+    private long rows = 0;
+    private boolean ok = true;
+    private boolean closed = false;
+
+    RowIterator(PreparedStatement stmt, ResultSet rs, RowTypeFactory<T> factory, CloseListener listener) {
+        this.stmt = stmt;
+        this.rs = rs;
+        this.factory = factory;
+        this.listener = listener;
+    }
+
+    private SQLGException wrap(SQLException ex) {
+        ok = false;
+        return new SQLGException(ex.getMessage(), ex);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext == null) {
+            if (closed) {
+                hasNext = Boolean.FALSE;
+            } else {
+                try {
+                    hasNext = rs.next();
+                } catch (SQLException ex) {
+                    throw wrap(ex);
+                }
+            }
+        }
+        return hasNext.booleanValue();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        hasNext = null;
+        try {
+            T row = factory.fetch(rs);
+            rows++;
+            return row;
+        } catch (SQLException ex) {
+            throw wrap(ex);
+        } catch (RuntimeException | Error ex) {
+            ok = false;
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes result set and statement.
+     */
+    void close() {
+        if (closed)
+            return;
+        closed = true;
+        SQLException error = null;
+        try {
+            rs.close();
+        } catch (SQLException ex) {
+            error = ex;
+        }
+        try {
+            stmt.close();
+        } catch (SQLException ex) {
+            if (error == null) {
+                error = ex;
+            } else {
+                error.addSuppressed(ex);
+            }
+        }
+        listener.closed(ok && error == null, rows);
+        if (error != null)
+            throw new SQLGException(error.getMessage(), error);
+    }
+}
@@ -1,6 +1,9 @@
 package sqlg3.runtime;
 
+import sqlg3.types.SQLGException;
+
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 /**
@@ -9,5 +12,18 @@ import java.sql.SQLException;
  */
 interface RowTypeFactory<T> {
 
-    T fetch(RuntimeMapper mappers, ResultSet rs) throws SQLException;
+    /**
+     * Checks that result set columns match the row type. Called once per result set
+     * when {@link GlobalContext#checkRowTypes} is on.
+     */
+    void check(ResultSetMetaData rsmd) throws SQLException;
+
+    T fetch(ResultSet rs) throws SQLException;
+
+    /**
+     * Creates meta row type instance from the result set metadata.
+     */
+    default T fetchMeta(ResultSetMetaData rsmd) throws SQLException {
+        throw new SQLGException("Not a meta row type");
+    }
 }
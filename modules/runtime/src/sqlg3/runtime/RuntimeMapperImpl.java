@@ -3,15 +3,59 @@ package sqlg3.runtime;
 import sqlg3.types.SQLGException;
 
 import java.sql.*;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class RuntimeMapperImpl implements RuntimeMapper {
 
     private final Map<Class<?>, TypeMapper<?>> mappers = new ConcurrentHashMap<>();
+    /**
+     * Per-class cache of {@link #mappers} lookups, so that binding parameters does not use hash lookups.
+     */
+    private final ClassValue<TypeMapper<?>> resolved = new ClassValue<TypeMapper<?>>() {
+        @Override
+        protected TypeMapper<?> computeValue(Class<?> type) {
+            return mappers.get(type);
+        }
+    };
+
+    /**
+     * Called after new mapper is registered (used by {@link GlobalContext} to drop row type factories
+     * holding previous mappers).
+     */
+    final List<Runnable> registerListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Mappers registered by {@link #registerDefault()}
+     */
+    private final Set<TypeMapper<?>> builtIn = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    /**
+     * Registers mapper for class. Can be called after queries were executed: row type factories
+     * of {@link GlobalContext}s using this mapper are recreated.
+     */
     public final <T> void register(TypeMapper<T> mapper) {
         mappers.put(mapper.cls, mapper);
+        resolved.remove(mapper.cls);
+        for (Runnable listener : registerListeners) {
+            listener.run();
+        }
+    }
+
+    private void registerBuiltIn(TypeMapper<?> mapper) {
+        builtIn.add(mapper);
+        register(mapper);
+    }
+
+    /**
+     * @return true if class is mapped by the default mapper of {@link #registerDefault()}
+     */
+    final boolean isBuiltIn(Class<?> cls) {
+        TypeMapper<?> mapper = mappers.get(cls);
+        return mapper != null && builtIn.contains(mapper);
     }
 
     /**
@@ -23,7 +67,7 @@ public class RuntimeMapperImpl implements RuntimeMapper {
     @SuppressWarnings("unchecked")
     @Override
     public <T> TypeMapper<T> getMapper(Class<T> cls) {
-        TypeMapper<?> mapper = mappers.get(cls);
+        TypeMapper<?> mapper = resolved.get(cls);
         if (mapper == null) {
             throw new SQLGException("Cannot find mapping for class " + cls.getCanonicalName());
         }
@@ -121,6 +165,126 @@ public class RuntimeMapperImpl implements RuntimeMapper {
         }
     }
 
+    /**
+     * Mapper for <code>int</code> and <code>Integer</code> which can fetch values without boxing.
+     */
+    public static final class IntMapper extends AbstractBasicMapper<Integer> {
+
+        private final boolean nullable;
+
+        /**
+         * @param cls <code>int.class</code> or <code>Integer.class</code>
+         */
+        public IntMapper(Class<Integer> cls) {
+            super(cls, Types.INTEGER, PreparedStatement::setInt);
+            this.nullable = !cls.isPrimitive();
+        }
+
+        @Override
+        public Integer fetch(ResultSet rs, int index) throws SQLException {
+            int value = rs.getInt(index);
+            if (nullable && rs.wasNull())
+                return null;
+            return value;
+        }
+
+        @Override
+        public int fetchInt(ResultSet rs, int index, int nullValue) throws SQLException {
+            int value = rs.getInt(index);
+            if (rs.wasNull())
+                return nullValue;
+            return value;
+        }
+
+        @Override
+        public Integer get(CallableStatement cs, int index) throws SQLException {
+            int value = cs.getInt(index);
+            if (nullable && cs.wasNull())
+                return null;
+            return value;
+        }
+    }
+
+    /**
+     * Mapper for <code>long</code> and <code>Long</code> which can fetch values without boxing.
+     */
+    public static final class LongMapper extends AbstractBasicMapper<Long> {
+
+        private final boolean nullable;
+
+        /**
+         * @param cls <code>long.class</code> or <code>Long.class</code>
+         */
+        public LongMapper(Class<Long> cls) {
+            super(cls, Types.BIGINT, PreparedStatement::setLong);
+            this.nullable = !cls.isPrimitive();
+        }
+
+        @Override
+        public Long fetch(ResultSet rs, int index) throws SQLException {
+            long value = rs.getLong(index);
+            if (nullable && rs.wasNull())
+                return null;
+            return value;
+        }
+
+        @Override
+        public long fetchLong(ResultSet rs, int index, long nullValue) throws SQLException {
+            long value = rs.getLong(index);
+            if (rs.wasNull())
+                return nullValue;
+            return value;
+        }
+
+        @Override
+        public Long get(CallableStatement cs, int index) throws SQLException {
+            long value = cs.getLong(index);
+            if (nullable && cs.wasNull())
+                return null;
+            return value;
+        }
+    }
+
+    /**
+     * Mapper for <code>double</code> and <code>Double</code> which can fetch values without boxing.
+     */
+    public static final class DoubleMapper extends AbstractBasicMapper<Double> {
+
+        private final boolean nullable;
+
+        /**
+         * @param cls <code>double.class</code> or <code>Double.class</code>
+         */
+        public DoubleMapper(Class<Double> cls) {
+            super(cls, Types.DOUBLE, PreparedStatement::setDouble);
+            this.nullable = !cls.isPrimitive();
+        }
+
+        @Override
+        public Double fetch(ResultSet rs, int index) throws SQLException {
+            double value = rs.getDouble(index);
+            if (nullable && rs.wasNull())
+                return null;
+            return value;
+        }
+
+        @Override
+        public double fetchDouble(ResultSet rs, int index, double nullValue) throws SQLException {
+            double value = rs.getDouble(index);
+            if (rs.wasNull())
+                return nullValue;
+            return value;
+        }
+
+        @Override
+        public Double get(CallableStatement cs, int index) throws SQLException {
+            double value = cs.getDouble(index);
+            if (nullable && cs.wasNull())
+                return null;
+            return value;
+        }
+    }
+
     public static final class EnumMapper<T extends Enum<T>> extends TypeMapper<T> {
 
         public EnumMapper(Class<T> cls) {
@@ -159,47 +323,36 @@ public class RuntimeMapperImpl implements RuntimeMapper {
     }
 
     public void registerDefault() {
-        register(new BasicMapper<>(
+        builtIn.clear();
+        registerBuiltIn(new BasicMapper<>(
             boolean.class, Types.BOOLEAN, PreparedStatement::setBoolean, ResultSet::getBoolean, CallableStatement::getBoolean
         ));
-        register(new WrapperMapper<>(
+        registerBuiltIn(new WrapperMapper<>(
             Boolean.class, Types.BOOLEAN, PreparedStatement::setBoolean, ResultSet::getBoolean, CallableStatement::getBoolean
         ));
 
-        register(new BasicMapper<>(
-            int.class, Types.INTEGER, PreparedStatement::setInt, ResultSet::getInt, CallableStatement::getInt
-        ));
-        register(new WrapperMapper<>(
-            Integer.class, Types.INTEGER, PreparedStatement::setInt, ResultSet::getInt, CallableStatement::getInt
-        ));
+        registerBuiltIn(new IntMapper(int.class));
+        registerBuiltIn(new IntMapper(Integer.class));
 
-        register(new BasicMapper<>(
-            long.class, Types.BIGINT, PreparedStatement::setLong, ResultSet::getLong, CallableStatement::getLong
-        ));
-        register(new WrapperMapper<>(
-            Long.class, Types.BIGINT, PreparedStatement::setLong, ResultSet::getLong, CallableStatement::getLong
-        ));
+        registerBuiltIn(new LongMapper(long.class));
+        registerBuiltIn(new LongMapper(Long.class));
 
-        register(new BasicMapper<>(
-            double.class, Types.DOUBLE, PreparedStatement::setDouble, ResultSet::getDouble, CallableStatement::getDouble
-        ));
-        register(new WrapperMapper<>(
-            Double.class, Types.DOUBLE, PreparedStatement::setDouble, ResultSet::getDouble, CallableStatement::getDouble
-        ));
+        registerBuiltIn(new DoubleMapper(double.class));
+        registerBuiltIn(new DoubleMapper(Double.class));
 
-        register(new BasicMapper<>(
+        registerBuiltIn(new BasicMapper<>(
             String.class, Types.VARCHAR, PreparedStatement::setString, ResultSet::getString, CallableStatement::getString
         ));
-        register(new BasicMapper<>(
+        registerBuiltIn(new BasicMapper<>(
             byte[].class, Types.VARBINARY, PreparedStatement::setBytes, ResultSet::getBytes, CallableStatement::getBytes
         ));
-        register(new BasicMapper<>(
+        registerBuiltIn(new BasicMapper<>(
             Timestamp.class, Types.TIMESTAMP, PreparedStatement::setTimestamp, ResultSet::getTimestamp, CallableStatement::getTimestamp
         ));
-        register(new BasicMapper<>(
+        registerBuiltIn(new BasicMapper<>(
             Date.class, Types.DATE, PreparedStatement::setDate, ResultSet::getDate, CallableStatement::getDate
         ));
-        register(new BasicMapper<>(
+        registerBuiltIn(new BasicMapper<>(
             Time.class, Types.TIME, PreparedStatement::setTime, ResultSet::getTime, CallableStatement::getTime
         ));
     }
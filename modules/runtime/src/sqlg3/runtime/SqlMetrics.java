@@ -0,0 +1,24 @@
+package sqlg3.runtime;
+
+/**
+ * Collection of SQL execution metrics, see {@link GlobalContext#metrics}.
+ * Standard implementation is {@link SqlMetricsCollector}.
+ * <p>
+ * Implementations should be thread-safe and fast since they are called after each statement execution.
+ */
+public interface SqlMetrics {
+
+    /**
+     * Called after statement execution.
+     *
+     * @param sql SQL text of the statement (after preprocessing, so it identifies the statement)
+     * @param ok false if SQL statement has not completed successfully
+     * @param bindNanos time of statement preparation and parameter binding in nanoseconds
+     * @param executeNanos time of statement execution in nanoseconds
+     * @param fetchNanos time of fetching results in nanoseconds
+     * @param rowsFetched number of rows fetched
+     * @param rowsUpdated number of rows updated
+     */
+    void record(String sql, boolean ok, long bindNanos, long executeNanos, long fetchNanos,
+                long rowsFetched, long rowsUpdated);
+}
@@ -0,0 +1,129 @@
+package sqlg3.runtime;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects metrics for each distinct SQL statement: latency histogram, bind/execute/fetch times,
+ * row counts and errors. Set it to {@link GlobalContext#metrics} to start collecting.
+ * <p>
+ * Collector can be exposed via JMX:
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(collector, new ObjectName("sqlg3:type=SqlMetrics"));
+ * </pre>
+ */
+public final class SqlMetricsCollector implements SqlMetrics, SqlMetricsCollectorMXBean {
+
+    /**
+     * Key for statements which are not tracked separately because the collector is full.
+     */
+    public static final String OTHER = "<other>";
+
+    public static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+    private static final class Statement {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder bindTime = new LongAdder();
+        final LongAdder executeTime = new LongAdder();
+        final LongAdder fetchTime = new LongAdder();
+        final LongAdder rowsFetched = new LongAdder();
+        final LongAdder rowsUpdated = new LongAdder();
+
+        void record(boolean ok, long bindNanos, long executeNanos, long fetchNanos, long fetched, long updated) {
+            histogram.record(bindNanos + executeNanos + fetchNanos);
+            if (!ok) {
+                errors.increment();
+            }
+            bindTime.add(bindNanos);
+            executeTime.add(executeNanos);
+            fetchTime.add(fetchNanos);
+            rowsFetched.add(fetched);
+            rowsUpdated.add(updated);
+        }
+
+        SqlStatementMetrics snapshot(String sql) {
+            long[] buckets = histogram.snapshot();
+            long count = 0;
+            for (long bucket : buckets) {
+                count += bucket;
+            }
+            long max = histogram.getMax();
+            long bind = bindTime.sum();
+            long execute = executeTime.sum();
+            long fetch = fetchTime.sum();
+            return new SqlStatementMetrics(
+                sql, count, errors.sum(),
+                bind + execute + fetch, bind, execute, fetch,
+                max,
+                Math.min(LatencyHistogram.percentile(buckets, 50), max),
+                Math.min(LatencyHistogram.percentile(buckets, 90), max),
+                Math.min(LatencyHistogram.percentile(buckets, 99), max),
+                rowsFetched.sum(), rowsUpdated.sum()
+            );
+        }
+    }
+
+    private final ConcurrentMap<String, Statement> entries = new ConcurrentHashMap<>();
+    private final int maxStatements;
+
+    /**
+     * @param maxStatements maximum number of distinct statements tracked separately, other statements
+     *                      are accumulated under {@link #OTHER}
+     */
+    public SqlMetricsCollector(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    public SqlMetricsCollector() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    private Statement getStatementEntry(String sql) {
+        Statement entry = entries.get(sql);
+        if (entry != null)
+            return entry;
+        String key = entries.size() < maxStatements ? sql : OTHER;
+        return entries.computeIfAbsent(key, k -> new Statement());
+    }
+
+    @Override
+    public void record(String sql, boolean ok, long bindNanos, long executeNanos, long fetchNanos,
+                       long rowsFetched, long rowsUpdated) {
+        getStatementEntry(sql).record(ok, bindNanos, executeNanos, fetchNanos, rowsFetched, rowsUpdated);
+    }
+
+    /**
+     * Returns metrics of the statement or null if it was not executed.
+     */
+    public SqlStatementMetrics getStatement(String sql) {
+        Statement entry = entries.get(sql);
+        return entry == null ? null : entry.snapshot(sql);
+    }
+
+    @Override
+    public List<SqlStatementMetrics> getStatements() {
+        List<SqlStatementMetrics> result = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Statement> e : entries.entrySet()) {
+            result.add(e.getValue().snapshot(e.getKey()));
+        }
+        result.sort(Comparator.comparingLong(SqlStatementMetrics::getTotalTime).reversed());
+        return result;
+    }
+
+    @Override
+    public int getStatementCount() {
+        return entries.size();
+    }
+
+    @Override
+    public void reset() {
+        entries.clear();
+    }
+}
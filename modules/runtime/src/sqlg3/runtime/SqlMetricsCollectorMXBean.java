@@ -0,0 +1,24 @@
+package sqlg3.runtime;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link SqlMetricsCollector}.
+ */
+public interface SqlMetricsCollectorMXBean {
+
+    /**
+     * Returns metrics of all statements sorted by total time (descending).
+     */
+    List<SqlStatementMetrics> getStatements();
+
+    /**
+     * Returns number of distinct statements being tracked.
+     */
+    int getStatementCount();
+
+    /**
+     * Clears all collected metrics.
+     */
+    void reset();
+}
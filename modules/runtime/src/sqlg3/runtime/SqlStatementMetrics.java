@@ -0,0 +1,129 @@
+package sqlg3.runtime;
+
+/**
+ * Snapshot of metrics of one SQL statement collected by {@link SqlMetricsCollector}.
+ * All times are in nanoseconds.
+ */
+public final class SqlStatementMetrics {
+
+    private final String sql;
+    private final long count;
+    private final long errors;
+    private final long totalTime;
+    private final long bindTime;
+    private final long executeTime;
+    private final long fetchTime;
+    private final long maxTime;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long rowsFetched;
+    private final long rowsUpdated;
+
+    SqlStatementMetrics(String sql, long count, long errors,
+                        long totalTime, long bindTime, long executeTime, long fetchTime,
+                        long maxTime, long p50, long p90, long p99,
+                        long rowsFetched, long rowsUpdated) {
+        this.sql = sql;
+        this.count = count;
+        this.errors = errors;
+        this.totalTime = totalTime;
+        this.bindTime = bindTime;
+        this.executeTime = executeTime;
+        this.fetchTime = fetchTime;
+        this.maxTime = maxTime;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.rowsFetched = rowsFetched;
+        this.rowsUpdated = rowsUpdated;
+    }
+
+    /**
+     * SQL text or {@link SqlMetricsCollector#OTHER} for statements which did not fit into the collector.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Number of executions
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Number of failed executions
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Total time of all executions
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Total time of statement preparation and parameter binding
+     */
+    public long getBindTime() {
+        return bindTime;
+    }
+
+    /**
+     * Total time of statement execution
+     */
+    public long getExecuteTime() {
+        return executeTime;
+    }
+
+    /**
+     * Total time of fetching results
+     */
+    public long getFetchTime() {
+        return fetchTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Approximate median of execution time
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Approximate 90th percentile of execution time
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * Approximate 99th percentile of execution time
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    public long getRowsUpdated() {
+        return rowsUpdated;
+    }
+
+    public String toString() {
+        return count + " executions (" + errors + " errors), total " + totalTime / 1000000 + " ms, p50/p90/p99/max "
+               + p50 / 1000 + "/" + p90 / 1000 + "/" + p99 / 1000 + "/" + maxTime / 1000 + " us, rows fetched "
+               + rowsFetched + ", updated " + rowsUpdated + ": " + sql;
+    }
+}
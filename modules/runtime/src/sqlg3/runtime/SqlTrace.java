@@ -1,6 +1,7 @@
 package sqlg3.runtime;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -17,17 +18,48 @@ public interface SqlTrace {
         }
     }
 
+    /**
+     * Creates trace which logs only failed statements.
+     */
     static SqlTrace createDefault(Consumer<String> logger) {
-        return (ok, time, getMessages) -> {
-            if (!ok) {
-                doTrace(logger, "SQL not completed properly", getMessages);
+        return new SqlTrace() {
+
+            @Override
+            public boolean isTraceSuccessful() {
+                return false;
+            }
+
+            @Override
+            public void trace(boolean ok, long time, Supplier<List<String>> getMessages) {
+                if (!ok) {
+                    doTrace(logger, "SQL not completed properly", getMessages);
+                }
             }
         };
     }
 
+    /**
+     * Returns false if successfully completed statements are ignored by this trace, so they are not timed
+     * and not reported at all. Failed statements are always reported.
+     */
+    default boolean isTraceSuccessful() {
+        return true;
+    }
+
     /**
      * @param ok false if SQL statement has not completed successfully
      * @param time time in milliseconds
      */
     void trace(boolean ok, long time, Supplier<List<String>> getMessages);
+
+    /**
+     * Same as {@link #trace} but with nanosecond precision. Default implementation converts time to
+     * milliseconds and calls {@link #trace}.
+     *
+     * @param ok false if SQL statement has not completed successfully
+     * @param nanos time in nanoseconds
+     */
+    default void traceNanos(boolean ok, long nanos, Supplier<List<String>> getMessages) {
+        trace(ok, TimeUnit.NANOSECONDS.toMillis(nanos), getMessages);
+    }
 }
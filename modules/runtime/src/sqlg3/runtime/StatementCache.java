@@ -0,0 +1,185 @@
+package sqlg3.runtime;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Cache of prepared statements for one JDBC connection. Statements are reused by {@link GBase} methods instead
+ * of being prepared and closed on each call. Least recently used statements are closed when the cache is full.
+ * <p>
+ * Caching is opt-in: create the cache together with the connection, pass it to
+ * {@link GContext#GContext(GlobalContext, Object, StatementCache)} and close it before closing the connection.
+ * When connection is closed cached statements are discarded.
+ */
+public final class StatementCache implements AutoCloseable {
+
+    static final class Key {
+
+        final String sql;
+        final Object variant;
+
+        Key(String sql, Object variant) {
+            this.sql = sql;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key that = (Key) obj;
+            return sql.equals(that.sql) && variant.equals(that.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return sql.hashCode() * 31 + variant.hashCode();
+        }
+    }
+
+    private final Connection connection;
+    private int maxSize;
+    private boolean closed = false;
+    private final LinkedHashMap<Key, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param connection JDBC connection
+     * @param maxSize maximum number of cached statements
+     */
+    public StatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ex) {
+            // ignore
+        }
+    }
+
+    private void evict() {
+        Iterator<PreparedStatement> i = statements.values().iterator();
+        while (statements.size() > maxSize && i.hasNext()) {
+            PreparedStatement stmt = i.next();
+            i.remove();
+            closeQuietly(stmt);
+        }
+    }
+
+    private void discardAll() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+    }
+
+    /**
+     * Removes statement from the cache, so it cannot be used by anybody else until {@link #release}.
+     *
+     * @return cached statement or null if it should be prepared
+     */
+    synchronized PreparedStatement take(Key key) throws SQLException {
+        if (closed)
+            return null;
+        PreparedStatement stmt = statements.remove(key);
+        if (stmt != null && stmt.isClosed())
+            return null;
+        return stmt;
+    }
+
+    /**
+     * Discards all cached statements if connection is closed. Called after statement execution fails,
+     * so connection state is not checked on each execution.
+     */
+    synchronized void checkConnection() {
+        try {
+            if (!connection.isClosed())
+                return;
+        } catch (SQLException ex) {
+            // treat as closed
+        }
+        discardAll();
+    }
+
+    /**
+     * Returns statement to the cache after successful execution.
+     */
+    synchronized void release(Key key, PreparedStatement stmt) {
+        try {
+            if (closed || maxSize <= 0 || connection.isClosed()) {
+                stmt.close();
+                return;
+            }
+            stmt.clearParameters();
+        } catch (SQLException ex) {
+            closeQuietly(stmt);
+            return;
+        }
+        PreparedStatement old = statements.put(key, stmt);
+        if (old != null && old != stmt) {
+            closeQuietly(old);
+        }
+        evict();
+    }
+
+    /**
+     * Closes all cached statements. Should be called before closing the connection.
+     */
+    @Override
+    public void close() throws SQLException {
+        List<PreparedStatement> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(statements.values());
+            statements.clear();
+        }
+        SQLException error = null;
+        for (PreparedStatement stmt : toClose) {
+            try {
+                stmt.close();
+            } catch (SQLException ex) {
+                if (error == null) {
+                    error = ex;
+                } else {
+                    error.addSuppressed(ex);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Closes all cached statements but allows further caching.
+     */
+    public synchronized void clear() {
+        discardAll();
+    }
+}
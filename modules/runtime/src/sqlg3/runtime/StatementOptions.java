@@ -0,0 +1,89 @@
+package sqlg3.runtime;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JDBC statement execution options. Zero value means that the value is not set, so the default from
+ * {@link GlobalContext#defaultOptions} is used (and if it is not set too, the JDBC driver default).
+ * <p>
+ * Options can be attached to a query with {@link QueryPiece#withOptions} or {@link QueryBuilder#setOptions}.
+ */
+public final class StatementOptions {
+
+    /**
+     * No options set.
+     */
+    public static final StatementOptions DEFAULT = new StatementOptions(0, 0, 0);
+
+    /**
+     * Number of rows fetched in one round trip, see {@link Statement#setFetchSize}.
+     */
+    public final int fetchSize;
+    /**
+     * Maximum number of rows returned, see {@link Statement#setMaxRows}.
+     */
+    public final int maxRows;
+    /**
+     * Query timeout in seconds, see {@link Statement#setQueryTimeout}.
+     */
+    public final int queryTimeout;
+
+    public StatementOptions(int fetchSize, int maxRows, int queryTimeout) {
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
+        this.queryTimeout = queryTimeout;
+    }
+
+    public StatementOptions withFetchSize(int fetchSize) {
+        return new StatementOptions(fetchSize, maxRows, queryTimeout);
+    }
+
+    public StatementOptions withMaxRows(int maxRows) {
+        return new StatementOptions(fetchSize, maxRows, queryTimeout);
+    }
+
+    public StatementOptions withQueryTimeout(int queryTimeout) {
+        return new StatementOptions(fetchSize, maxRows, queryTimeout);
+    }
+
+    boolean isEmpty() {
+        return fetchSize <= 0 && maxRows <= 0 && queryTimeout <= 0;
+    }
+
+    /**
+     * Replaces values which are not set with values from <code>defaults</code>.
+     */
+    StatementOptions orElse(StatementOptions defaults) {
+        if (defaults == null || defaults.isEmpty())
+            return this;
+        if (isEmpty())
+            return defaults;
+        return new StatementOptions(
+            fetchSize > 0 ? fetchSize : defaults.fetchSize,
+            maxRows > 0 ? maxRows : defaults.maxRows,
+            queryTimeout > 0 ? queryTimeout : defaults.queryTimeout
+        );
+    }
+
+    /**
+     * Applies options to the statement.
+     *
+     * @param reset true if statement is reused, so values which are not set should be reset to JDBC defaults
+     */
+    void apply(Statement stmt, boolean reset) throws SQLException {
+        if (reset || fetchSize > 0) {
+            stmt.setFetchSize(Math.max(fetchSize, 0));
+        }
+        if (reset || maxRows > 0) {
+            stmt.setMaxRows(Math.max(maxRows, 0));
+        }
+        if (reset || queryTimeout > 0) {
+            stmt.setQueryTimeout(Math.max(queryTimeout, 0));
+        }
+    }
+
+    public String toString() {
+        return "fetchSize " + fetchSize + ", maxRows " + maxRows + ", queryTimeout " + queryTimeout;
+    }
+}
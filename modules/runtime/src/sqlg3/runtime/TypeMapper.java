@@ -35,6 +35,53 @@ public abstract class TypeMapper<T> {
      */
     public abstract T fetch(ResultSet rs, int index) throws SQLException;
 
+    private Number toNumber(T value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        } else {
+            throw new SQLGException("Cannot convert " + cls.getCanonicalName() + " to number");
+        }
+    }
+
+    /**
+     * Fetches <code>int</code> value from the result set. Default implementation converts result of
+     * {@link #fetch}, override this method to avoid boxing.
+     *
+     * @param rs result set
+     * @param index first column of result set
+     * @param nullValue value to return for NULL
+     */
+    public int fetchInt(ResultSet rs, int index, int nullValue) throws SQLException {
+        T value = fetch(rs, index);
+        return value == null ? nullValue : toNumber(value).intValue();
+    }
+
+    /**
+     * Fetches <code>long</code> value from the result set. Default implementation converts result of
+     * {@link #fetch}, override this method to avoid boxing.
+     *
+     * @param rs result set
+     * @param index first column of result set
+     * @param nullValue value to return for NULL
+     */
+    public long fetchLong(ResultSet rs, int index, long nullValue) throws SQLException {
+        T value = fetch(rs, index);
+        return value == null ? nullValue : toNumber(value).longValue();
+    }
+
+    /**
+     * Fetches <code>double</code> value from the result set. Default implementation converts result of
+     * {@link #fetch}, override this method to avoid boxing.
+     *
+     * @param rs result set
+     * @param index first column of result set
+     * @param nullValue value to return for NULL
+     */
+    public double fetchDouble(ResultSet rs, int index, double nullValue) throws SQLException {
+        T value = fetch(rs, index);
+        return value == null ? nullValue : toNumber(value).doubleValue();
+    }
+
     /**
      * Sets the parameter for a prepared statement.
      *
@@ -1,28 +1,47 @@
 package sqlg3.runtime;
 
+import java.util.Collections;
+import java.util.List;
+
 public final class UpdateResult {
 
+    private static final Object[] NO_KEYS = new Object[0];
+
     private final int rows;
-    private final Object[] generatedKeys;
+    private final List<Object[]> generatedKeys;
 
-    public UpdateResult(int rows, Object[] generatedKeys) {
+    public UpdateResult(int rows, List<Object[]> generatedKeys) {
         this.rows = rows;
         this.generatedKeys = generatedKeys;
     }
 
+    public UpdateResult(int rows, Object[] generatedKeys) {
+        this(rows, Collections.singletonList(generatedKeys));
+    }
+
     public int getRows() {
         return rows;
     }
 
+    /**
+     * Generated keys of the first inserted row (empty array if there are no generated keys).
+     */
     public Object[] getGeneratedKeys() {
+        return generatedKeys.isEmpty() ? NO_KEYS : generatedKeys.get(0);
+    }
+
+    /**
+     * Generated keys for each inserted row (for multi-row inserts).
+     */
+    public List<Object[]> getAllGeneratedKeys() {
         return generatedKeys;
     }
 
     public int getGeneratedInt() {
-        return ((Number) generatedKeys[0]).intValue();
+        return ((Number) getGeneratedKeys()[0]).intValue();
     }
 
     public long getGeneratedLong() {
-        return ((Number) generatedKeys[0]).longValue();
+        return ((Number) getGeneratedKeys()[0]).longValue();
     }
 }
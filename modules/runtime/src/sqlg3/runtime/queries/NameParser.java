@@ -1,31 +1,18 @@
 package sqlg3.runtime.queries;
 
-import java.util.function.Function;
-
 class NameParser {
 
-    protected String source;
-    protected int sourceLength;
+    protected final CharSequence source;
+    protected final int sourceLength;
     protected int pos;
 
-    private String name;
-    private boolean isQuote;
-
-    protected NameParser() {
-    }
-
-    protected NameParser(String str) {
-        init(str);
-    }
-
-    private void init(String str) {
+    protected NameParser(CharSequence str) {
         this.source = str;
         this.pos = 0;
         this.sourceLength = str.length();
     }
 
-    protected final String getIdent() {
-        int pos1 = pos;
+    protected final void skipIdent() {
         while (pos < sourceLength) {
             char ch = source.charAt(pos);
             if (!isIdentChar(ch)) {
@@ -33,19 +20,21 @@ class NameParser {
             }
             pos++;
         }
-        return source.substring(pos1, pos);
     }
 
-    protected final String getQuoteIdent() {
-        int pos1 = ++pos;
+    /**
+     * Skips quoted identifier starting at the current position.
+     *
+     * @return false if closing quote is missing
+     */
+    protected final boolean skipQuoteIdent() {
+        pos++;
         while (pos < sourceLength) {
-            char ch = source.charAt(pos);
-            if (ch == '"') {
-                return source.substring(pos1, pos++);
-            }
-            pos++;
+            char ch = source.charAt(pos++);
+            if (ch == '"')
+                return true;
         }
-        return source.substring(pos1, pos);
+        return false;
     }
 
     protected final boolean skipSpaces() {
@@ -61,21 +50,8 @@ class NameParser {
         return containsEoln;
     }
 
-    protected final boolean readIdent() {
-        if (pos >= sourceLength)
-            return false;
-        char ch = source.charAt(pos);
-        if (ch == '"') {
-            name = getQuoteIdent();
-            isQuote = true;
-            return true;
-        } else if (isIdentChar(ch)) {
-            name = getIdent();
-            isQuote = false;
-            return true;
-        } else {
-            return false;
-        }
+    protected final String substring(int from, int to) {
+        return source.subSequence(from, to).toString();
     }
 
     static boolean isIdentChar(char ch) {
@@ -87,20 +63,4 @@ class NameParser {
     static boolean isWhiteSpace(char ch) {
         return ch <= ' ';
     }
-
-    protected final String getIdentString() {
-        if (isQuote) {
-            return '"' + name + '"';
-        } else {
-            return name;
-        }
-    }
-
-    protected final String getCanonicIdent(Function<String, String> canonicalizer) {
-        if (isQuote) {
-            return name;
-        } else {
-            return canonicalizer.apply(name);
-        }
-    }
 }
@@ -15,40 +15,33 @@ public final class QueryParser {
 
     private abstract static class TokenMatch {
 
-        abstract boolean matchToken(TokenKind id, String currValue, String lastValue,
-                                    StringBuilder synthQuery);
+        /**
+         * @return false if the current token should not be written to the output
+         * (then the previous token is not written too, so it should be written by this method if required)
+         */
+        abstract boolean matchToken(TokenKind id, SelectTokenizer st, StringBuilder synthQuery);
 
         abstract void matchEnd(StringBuilder synthQuery);
     }
 
-    private static String parseQueryAny(String statement, List<String> usedParameters, TokenMatch match) {
-        StringBuilder synthQuery = new StringBuilder();
+    private static String parseQueryAny(CharSequence statement, List<String> usedParameters, TokenMatch match) {
+        StringBuilder synthQuery = new StringBuilder(statement.length() + 16);
         SelectTokenizer st = new SelectTokenizer(statement);
-        String lastValue = null;
         while (true) {
             TokenKind id = st.getToken();
             if (id == TokenKind.R_THEEND)
                 break;
-            String currValue = st.getValue(id);
-            if (!match.matchToken(id, currValue, lastValue, synthQuery)) {
-                lastValue = null;
+            if (!match.matchToken(id, st, synthQuery)) {
+                st.dropKept();
                 continue;
             }
-            if (lastValue != null) {
-                synthQuery.append(lastValue);
+            st.appendKept(synthQuery);
+            if (id == TokenKind.R_PARAM && usedParameters != null) {
+                usedParameters.add(st.getParam());
             }
-            if (id == TokenKind.R_PARAM) {
-                if (usedParameters != null) {
-                    usedParameters.add(st.getParam());
-                }
-                lastValue = "?";
-            } else {
-                lastValue = currValue;
-            }
-        }
-        if (lastValue != null) {
-            synthQuery.append(lastValue);
+            st.keep();
         }
+        st.appendKept(synthQuery);
         match.matchEnd(synthQuery);
         return synthQuery.toString();
     }
@@ -99,33 +92,35 @@ public final class QueryParser {
             private boolean wasFrom = false;
             private final List<Range> specials = new ArrayList<>();
 
-            private void finishSelectColumns(String lastValue, StringBuilder synthQuery) {
+            private void finishSelectColumns(SelectTokenizer st, StringBuilder synthQuery) {
                 for (Range range : specials) {
                     if (range.to > 0) {
-                        synthQuery.append(", '' \"" + SPECIAL + range.name + "$" + range.from + "$" + range.to + "\"");
+                        synthQuery
+                            .append(", '' \"").append(SPECIAL).append(range.name)
+                            .append('$').append(range.from).append('$').append(range.to).append('"');
                     }
                 }
-                if (lastValue != null) {
-                    synthQuery.append(lastValue);
+                if (st != null) {
+                    st.appendKept(synthQuery);
                 }
                 columnCount = 0;
             }
 
-            boolean matchToken(TokenKind id, String currValue, String lastValue, StringBuilder synthQuery) {
+            boolean matchToken(TokenKind id, SelectTokenizer st, StringBuilder synthQuery) {
                 if (isSelect == null) {
-                    if (id == TokenKind.R_ID && "SELECT".equalsIgnoreCase(currValue)) {
+                    if (st.isWord("SELECT")) {
                         isSelect = true;
                     } else if (id != TokenKind.R_WS) {
                         isSelect = false;
                     }
                 }
                 if (id == TokenKind.R_CHAR) {
-                    if ("{".equals(currValue)) {
+                    if (st.isChar('{')) {
                         if (brackets == 0 && columnCount > 0) {
-                            specials.add(new Range(lastValue, columnCount, 0));
+                            specials.add(new Range(st.getKept(), columnCount, 0));
                         }
                         return false;
-                    } else if ("}".equals(currValue)) {
+                    } else if (st.isChar('}')) {
                         if (brackets == 0 && specials.size() > 0) {
                             int lastIndex = specials.size() - 1;
                             Range range = specials.get(lastIndex);
@@ -133,23 +128,21 @@ public final class QueryParser {
                                 specials.set(lastIndex, new Range(range.name, range.from, columnCount));
                             }
                         }
-                        if (lastValue != null) {
-                            synthQuery.append(lastValue);
-                        }
+                        st.appendKept(synthQuery);
                         return false;
-                    } else if ("(".equals(currValue)) {
+                    } else if (st.isChar('(')) {
                         brackets++;
-                    } else if (")".equals(currValue)) {
+                    } else if (st.isChar(')')) {
                         brackets--;
-                    } else if (",".equals(currValue)) {
+                    } else if (st.isChar(',')) {
                         if (brackets == 0 && columnCount > 0) {
                             columnCount++;
                         }
                     }
                 } else if (id == TokenKind.R_ID) {
-                    if (brackets == 0 && "FROM".equalsIgnoreCase(currValue)) {
-                        finishSelectColumns(lastValue, synthQuery);
-                        synthQuery.append(currValue);
+                    if (brackets == 0 && st.isWord("FROM")) {
+                        finishSelectColumns(st, synthQuery);
+                        st.append(synthQuery);
                         wasFrom = true;
                         return false;
                     }
@@ -169,7 +162,7 @@ public final class QueryParser {
     public static String getParameters(String statement, List<String> usedParameters) {
         TokenMatch tokenMatch = new TokenMatch() {
 
-            boolean matchToken(TokenKind id, String currValue, String lastValue, StringBuilder synthQuery) {
+            boolean matchToken(TokenKind id, SelectTokenizer st, StringBuilder synthQuery) {
                 return true;
             }
 
@@ -180,7 +173,7 @@ public final class QueryParser {
     }
 
     public static String unparseQuery(String statement) {
-        StringBuilder query = new StringBuilder();
+        StringBuilder query = new StringBuilder(statement.length() + 16);
         SelectTokenizer st = new SelectTokenizer(statement);
         int paramCount = 1;
         while (true) {
@@ -188,11 +181,12 @@ public final class QueryParser {
             if (id == TokenKind.R_THEEND)
                 break;
             if (id == TokenKind.R_PARAM) {
-                query.append(':').append(st.getParam());
-            } else if (id == TokenKind.R_CHAR && "?".equals(st.getValue())) {
+                query.append(':');
+                st.appendParam(query);
+            } else if (st.isChar('?')) {
                 query.append(':').append(paramCount++);
             } else {
-                query.append(st.getValue(id));
+                st.append(query);
             }
         }
         return query.toString();
@@ -216,7 +210,7 @@ public final class QueryParser {
                 return new String[] {name1};
             if (t2 == TokenKind.R_WS)
                 continue;
-            if (t2 == TokenKind.R_CHAR && ".".equals(st.getValue()))
+            if (st.isChar('.'))
                 break;
             return null;
         }
@@ -235,7 +229,7 @@ public final class QueryParser {
                 return new String[] {name1, name2};
             if (t4 == TokenKind.R_WS)
                 continue;
-            if (t4 == TokenKind.R_CHAR && ".".equals(st.getValue()))
+            if (st.isChar('.'))
                 break;
             return null;
         }
@@ -1,138 +1,233 @@
 package sqlg3.runtime.queries;
 
+import java.util.function.Function;
+
+/**
+ * Splits SQL text into tokens. Tokens are kept as positions in the source text, so no strings are created
+ * while scanning: token values are appended to the output directly from the source.
+ * <p>
+ * Tokenizer also remembers one previous token (see {@link #keep()}), which is written to the output
+ * with a delay of one token.
+ */
 final class SelectTokenizer extends NameParser {
 
-    private String param;
-    private String value;
+    private TokenKind kind = null;
+    private int start;
+    private int end;
+    /**
+     * For {@link TokenKind#R_WS} - whitespace contains line break,
+     * for {@link TokenKind#R_ID} - closing quote of quoted identifier is missing
+     */
+    private boolean flag;
+
+    private int paramStart;
+    private int paramEnd;
+    private boolean paramOut;
+
+    private TokenKind keptKind = null;
+    private int keptStart;
+    private int keptEnd;
+    private boolean keptFlag;
 
-    SelectTokenizer(String str) {
+    SelectTokenizer(CharSequence str) {
         super(str);
     }
 
     TokenKind getToken() {
-        if (pos < sourceLength) {
-            char ch = source.charAt(pos);
-
-            switch (ch) {
-            case '\'':
-                {
-                    StringBuilder buf = new StringBuilder();
-                    buf.append(ch);
-                    pos++;
-                    while (pos < sourceLength) {
-                        ch = source.charAt(pos++);
-                        buf.append(ch);
-                        if (ch == '\'') {
-                            if (pos < sourceLength) {
-                                ch = source.charAt(pos);
-                                if (ch == '\'') {
-                                    buf.append(ch);
-                                    pos++;
-                                    continue;
-                                }
-                            }
-                            break;
-                        }
+        start = pos;
+        flag = false;
+        kind = scan();
+        end = pos;
+        return kind;
+    }
+
+    private TokenKind scan() {
+        if (pos >= sourceLength)
+            return TokenKind.R_THEEND;
+        char ch = source.charAt(pos);
+        switch (ch) {
+        case '\'':
+            pos++;
+            while (pos < sourceLength) {
+                ch = source.charAt(pos++);
+                if (ch == '\'') {
+                    if (pos < sourceLength && source.charAt(pos) == '\'') {
+                        pos++;
+                        continue;
                     }
-                    value = buf.toString();
-                    return TokenKind.R_QUOTE;
+                    break;
+                }
+            }
+            return TokenKind.R_QUOTE;
+        case '"':
+            flag = !skipQuoteIdent();
+            return TokenKind.R_ID;
+        case ':':
+            {
+                if (pos > 0 && source.charAt(pos - 1) == ':') {
+                    pos++;
+                    return TokenKind.R_CHAR;
                 }
-            case '"':
-                {
-                    readIdent();
-                    return TokenKind.R_ID;
+                int pos1 = ++pos;
+                skipSpaces();
+                if (pos >= sourceLength) {
+                    pos = pos1;
+                    return TokenKind.R_CHAR;
                 }
-            case ':':
-                {
-                    if (pos > 0 && source.charAt(pos - 1) == ':') {
-                        pos++;
-                        value = ":";
-                        return TokenKind.R_CHAR;
-                    }
-                    int pos1 = ++pos;
-                    skipSpaces();
-                    if (pos >= sourceLength) {
-                        pos = pos1;
-                        value = ":";
-                        return TokenKind.R_CHAR;
-                    }
-                    ch = source.charAt(pos);
-                    if (isIdentChar(ch)) {
-                        param = getIdent();
-                        value = "?";
-                        return TokenKind.R_PARAM;
-                    } else if (ch == '{') {
-                        int posb = pos;
-                        int pose = sourceLength;
-                        while (pos < sourceLength) {
-                            if (source.charAt(pos) == '}') {
-                                pose = pos;
-                                pos++;
-                                break;
-                            }
+                ch = source.charAt(pos);
+                if (isIdentChar(ch)) {
+                    paramStart = pos;
+                    skipIdent();
+                    paramEnd = pos;
+                    paramOut = false;
+                    return TokenKind.R_PARAM;
+                } else if (ch == '{') {
+                    paramStart = pos + 1;
+                    paramEnd = sourceLength;
+                    while (pos < sourceLength) {
+                        if (source.charAt(pos) == '}') {
+                            paramEnd = pos;
                             pos++;
+                            break;
                         }
-                        param = source.substring(posb + 1, pose);
-                        value = "?";
-                        return TokenKind.R_PARAM;
-                    } else if (ch == '>' && pos + 1 < sourceLength && isIdentChar(source.charAt(pos + 1))) {
                         pos++;
-                        param = ">" + getIdent();
-                        value = "?";
-                        return TokenKind.R_PARAM;
-                    } else {
-                        pos = pos1;
-                        value = ":";
-                        return TokenKind.R_CHAR;
                     }
-                }
-            default:
-                if (isIdentChar(ch)) {
-                    readIdent();
-                    return TokenKind.R_ID;
-                } else if (isWhiteSpace(ch)) {
-                    boolean containsEoln = skipSpaces();
-                    value = containsEoln ? "\n" : " ";
-                    return TokenKind.R_WS;
-                } else {
-                    value = String.valueOf(ch);
+                    paramOut = false;
+                    return TokenKind.R_PARAM;
+                } else if (ch == '>' && pos + 1 < sourceLength && isIdentChar(source.charAt(pos + 1))) {
                     pos++;
+                    paramStart = pos;
+                    skipIdent();
+                    paramEnd = pos;
+                    paramOut = true;
+                    return TokenKind.R_PARAM;
+                } else {
+                    pos = pos1;
                     return TokenKind.R_CHAR;
                 }
             }
+        default:
+            if (isIdentChar(ch)) {
+                skipIdent();
+                return TokenKind.R_ID;
+            } else if (isWhiteSpace(ch)) {
+                flag = skipSpaces();
+                return TokenKind.R_WS;
+            } else {
+                pos++;
+                return TokenKind.R_CHAR;
+            }
+        }
+    }
+
+    private void append(StringBuilder buf, TokenKind kind, int start, int end, boolean flag) {
+        switch (kind) {
+        case R_WS:
+            buf.append(flag ? '\n' : ' ');
+            break;
+        case R_PARAM:
+            buf.append('?');
+            break;
+        default:
+            buf.append(source, start, end);
+            if (kind == TokenKind.R_ID && flag) {
+                buf.append('"');
+            }
+            break;
+        }
+    }
+
+    /**
+     * Appends value of the current token: parameters are replaced with <code>?</code>,
+     * whitespace is replaced with single space or line break.
+     */
+    void append(StringBuilder buf) {
+        append(buf, kind, start, end, flag);
+    }
+
+    /**
+     * Appends parameter expression of the current {@link TokenKind#R_PARAM} token.
+     */
+    void appendParam(StringBuilder buf) {
+        if (paramOut) {
+            buf.append('>');
         }
-        return TokenKind.R_THEEND;
+        buf.append(source, paramStart, paramEnd);
     }
 
     String getParam() {
-        return param;
+        String param = substring(paramStart, paramEnd);
+        return paramOut ? ">" + param : param;
+    }
+
+    /**
+     * @return true if current token is the given character
+     */
+    boolean isChar(char ch) {
+        return kind == TokenKind.R_CHAR && source.charAt(start) == ch;
     }
 
-    String getValue(TokenKind id) {
-        if (id == TokenKind.R_ID) {
-            return getIdentString();
+    /**
+     * @return true if current token is non-quoted identifier equal to the given word ignoring case
+     */
+    boolean isWord(String word) {
+        if (kind != TokenKind.R_ID || end - start != word.length())
+            return false;
+        for (int i = 0; i < word.length(); i++) {
+            char ch1 = source.charAt(start + i);
+            char ch2 = word.charAt(i);
+            if (ch1 != ch2 && Character.toUpperCase(ch1) != Character.toUpperCase(ch2))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns current {@link TokenKind#R_ID} token as identifier name: quoted identifier without quotes,
+     * other identifiers converted by the canonicalizer.
+     */
+    String getCanonicIdent(Function<String, String> canonicalizer) {
+        if (source.charAt(start) == '"') {
+            return substring(start + 1, flag ? end : end - 1);
         } else {
-            return value;
+            return canonicalizer.apply(substring(start, end));
         }
     }
 
-    String getValue() {
-        return value;
+    /**
+     * Remembers current token as the previous one.
+     */
+    void keep() {
+        keptKind = kind;
+        keptStart = start;
+        keptEnd = end;
+        keptFlag = flag;
+    }
+
+    /**
+     * Forgets the previous token.
+     */
+    void dropKept() {
+        keptKind = null;
     }
 
-/*
-    public static void main(String[] args) {
-        SelectTokenizer tok = new SelectTokenizer(
-            "SELECT \"X.Y\".\"Z\" FROM \"X.Y\" WHERE T='''ABBA''' AND P=:{x+1}"
-        );
-        while (true) {
-            int id = tok.getToken();
-            StringBuilder buf = new StringBuilder();
-            tok.getValue(id, buf);
-            if (id == R_THEEND)
-                break;
-            System.out.println(id + ": <" + buf + ">");
+    /**
+     * Appends value of the previous token (if any).
+     */
+    void appendKept(StringBuilder buf) {
+        if (keptKind != null) {
+            append(buf, keptKind, keptStart, keptEnd, keptFlag);
         }
     }
-*/
+
+    /**
+     * @return value of the previous token or null
+     */
+    String getKept() {
+        if (keptKind == null)
+            return null;
+        StringBuilder buf = new StringBuilder();
+        append(buf, keptKind, keptStart, keptEnd, keptFlag);
+        return buf.toString();
+    }
 }
@@ -11,4 +11,9 @@ public final class Oracle implements DBSpecific {
     public String getNextIdSql(String sequence) {
         return "SELECT " + sequence + ".NEXTVAL FROM DUAL";
     }
+
+    @Override
+    public String getNextIdsSql(String sequence, int count) {
+        return "SELECT " + sequence + ".NEXTVAL FROM DUAL CONNECT BY LEVEL <= " + count;
+    }
 }
@@ -9,4 +9,9 @@ public final class Postgres extends Generic {
     public String getNextIdSql(String sequence) {
         return "SELECT NEXTVAL('" + sequence + "')";
     }
+
+    @Override
+    public String getNextIdsSql(String sequence, int count) {
+        return "SELECT NEXTVAL('" + sequence + "') FROM GENERATE_SERIES(1, " + count + ")";
+    }
 }
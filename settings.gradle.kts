@@ -13,4 +13,6 @@ fun add(name: String) {
 add("types")
 add("preprocess")
 add("preprocess-ant")
+add("preprocess-gradle")
 add("runtime")
+add("benchmarks")